@@ -0,0 +1,66 @@
+package com.dobalito;
+
+import com.dobalito.entity.Category;
+import com.dobalito.entity.Task;
+import com.dobalito.entity.TaskStatus;
+import com.dobalito.entity.User;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Тестовые данные для бенчмарков: сущности в том виде, в каком их отдают контроллеры
+ */
+public final class BenchmarkFixtures {
+    
+    public static final String PHONE = "+7 (999) 123-45-67";
+    public static final String NORMALIZED_PHONE = "79991234567";
+    // Как UserService.getAvatarUrl: SHA-256 содержимого и .jpg
+    public static final String AVATAR_URL =
+            "/api/v1/users/avatar/510796149c2d7762b2b40bc1606d7576e860e8e3025aa358dc7dd42bc85f61fa.jpg";
+    
+    private BenchmarkFixtures() {
+    }
+    
+    public static Category category(long id) {
+        Category category = new Category("Ремонт и строительство", "Repair and construction",
+                "Мелкий ремонт, отделка, сборка мебели");
+        category.setId(id);
+        category.setIcon("build");
+        category.setColor("#FF9800");
+        category.setCreatedAt(LocalDateTime.of(2024, 1, 15, 10, 30));
+        category.setUpdatedAt(LocalDateTime.of(2024, 3, 1, 12, 0));
+        return category;
+    }
+    
+    /**
+     * Пользователь с несколькими категориями (EAGER коллекция сериализуется вместе с ним)
+     */
+    public static User user(long id, int categories) {
+        User user = new User("Иван Петров", "ivan" + id + "@example.com", null,
+                NORMALIZED_PHONE, AVATAR_URL);
+        user.setId(id);
+        user.setDateOfBirth(LocalDate.of(1990, 5, 20));
+        user.setCreatedAt(LocalDateTime.of(2024, 2, 10, 9, 0));
+        user.setUpdatedAt(LocalDateTime.of(2024, 4, 5, 18, 45));
+        for (int i = 1; i <= categories; i++) {
+            user.getCategories().add(category(i));
+        }
+        return user;
+    }
+    
+    /**
+     * Задание с автором, исполнителем и категорией
+     */
+    public static Task task(long id) {
+        Task task = new Task("Собрать шкаф", "Нужно собрать шкаф-купе 2 метра, инструменты есть",
+                LocalDateTime.of(2024, 5, 1, 10, 0), LocalDateTime.of(2024, 5, 1, 18, 0),
+                user(1, 3), category(1));
+        task.setId(id);
+        task.setExecutor(user(2, 2));
+        task.setStatus(TaskStatus.IN_PROGRESS);
+        task.setCreatedAt(LocalDateTime.of(2024, 4, 28, 14, 20));
+        task.setUpdatedAt(LocalDateTime.of(2024, 4, 29, 8, 5));
+        return task;
+    }
+}
@@ -0,0 +1,81 @@
+package com.dobalito.config;
+
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT на каждом запросе: выпуск токена при входе, проверка и разбор в фильтре,
+ * извлечение токена из cookie или заголовка Authorization
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+    
+    private JwtUtil jwtUtil;
+    private JwtAuthenticationFilter filter;
+    private String token;
+    private MockHttpServletRequest cookieRequest;
+    private MockHttpServletRequest bearerRequest;
+    
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret",
+                "dobalito-secret-key-for-jwt-token-generation-very-long-and-secure-key");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 2592000000L);
+        jwtUtil.init();
+        token = jwtUtil.generateToken("79991234567", 42L, "Иван Петров");
+        
+        filter = new JwtAuthenticationFilter();
+        
+        // Браузер присылает и другие cookie - токен ищется среди них
+        cookieRequest = new MockHttpServletRequest("GET", "/api/v1/tasks");
+        cookieRequest.setCookies(new Cookie("JSESSIONID", "node01abcdef"), new Cookie("lang", "ru"),
+                new Cookie("jwt_token", token));
+        
+        bearerRequest = new MockHttpServletRequest("GET", "/api/v1/tasks");
+        bearerRequest.addHeader("Authorization", "Bearer " + token);
+    }
+    
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("79991234567", 42L, "Иван Петров");
+    }
+    
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+    
+    @Benchmark
+    public String getUsernameFromToken() {
+        return jwtUtil.getUsernameFromToken(token);
+    }
+    
+    @Benchmark
+    public String getTokenFromCookie() {
+        return filter.getTokenFromRequest(cookieRequest);
+    }
+    
+    @Benchmark
+    public String getTokenFromHeader() {
+        return filter.getTokenFromRequest(bearerRequest);
+    }
+}
@@ -0,0 +1,82 @@
+package com.dobalito.dto;
+
+import com.dobalito.BenchmarkFixtures;
+import com.dobalito.entity.Category;
+import com.dobalito.entity.Task;
+import com.dobalito.entity.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подготовка ответов API: CategoryResponse.from и Jackson сериализация графов Task/User.
+ * ObjectMapper собирается тем же Jackson2ObjectMapperBuilder, что и в Spring Boot (модули java.time и т.д.).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    
+    private ObjectMapper objectMapper;
+    private Category category;
+    private User user;
+    private Task task;
+    private List<Task> taskPage;
+    
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        category = BenchmarkFixtures.category(1);
+        user = BenchmarkFixtures.user(1, 3);
+        task = BenchmarkFixtures.task(1);
+        taskPage = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            taskPage.add(BenchmarkFixtures.task(i));
+        }
+    }
+    
+    @Benchmark
+    public CategoryResponse categoryResponse() {
+        return CategoryResponse.from(category);
+    }
+    
+    @Benchmark
+    public CategoryResponse categoryResponseEnglish() {
+        return CategoryResponse.from(category, "en");
+    }
+    
+    @Benchmark
+    public byte[] serializeUser() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+    
+    @Benchmark
+    public byte[] serializeTask() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(task);
+    }
+    
+    /**
+     * Страница списка заданий (20 элементов, как размер страницы по умолчанию)
+     */
+    @Benchmark
+    public byte[] serializeTaskPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(taskPage);
+    }
+}
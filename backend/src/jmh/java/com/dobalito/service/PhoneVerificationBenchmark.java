@@ -0,0 +1,50 @@
+package com.dobalito.service;
+
+import com.dobalito.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нормализация и проверка номера телефона (replaceAll компилирует регулярное выражение на каждый вызов)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PhoneVerificationBenchmark {
+    
+    private PhoneVerificationService service;
+    
+    @Setup
+    public void setUp() {
+        // Хранилище кодов для этих методов не нужно
+        service = new PhoneVerificationService();
+    }
+    
+    @Benchmark
+    public String normalizeFormattedPhone() {
+        return service.normalizePhone(BenchmarkFixtures.PHONE);
+    }
+    
+    @Benchmark
+    public String normalizeNormalizedPhone() {
+        return service.normalizePhone(BenchmarkFixtures.NORMALIZED_PHONE);
+    }
+    
+    @Benchmark
+    public boolean isValidPhoneFormat() {
+        return service.isValidPhoneFormat(BenchmarkFixtures.PHONE);
+    }
+}
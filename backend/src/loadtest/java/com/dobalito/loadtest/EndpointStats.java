@@ -0,0 +1,77 @@
+package com.dobalito.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика одного эндпоинта: гистограмма задержек (микросекунды) и число ошибок.
+ * Recorder позволяет писать из всех виртуальных пользователей без блокировок.
+ */
+class EndpointStats {
+    
+    private final String name;
+    private final Recorder recorder = new Recorder(3);
+    private final LongAdder errors = new LongAdder();
+    private Histogram histogram;
+    private long errorCount;
+    
+    EndpointStats(String name) {
+        this.name = name;
+    }
+    
+    void record(long latencyNanos, boolean success) {
+        recorder.recordValue(Math.max(1, latencyNanos / 1000));
+        if (!success) {
+            errors.increment();
+        }
+    }
+    
+    /**
+     * Сбросить накопленное (конец прогрева)
+     */
+    void reset() {
+        recorder.reset();
+        errors.reset();
+    }
+    
+    /**
+     * Зафиксировать результат измерения
+     */
+    void finish() {
+        histogram = recorder.getIntervalHistogram();
+        errorCount = errors.sum();
+    }
+    
+    String getName() {
+        return name;
+    }
+    
+    long getRequests() {
+        return histogram.getTotalCount();
+    }
+    
+    long getErrors() {
+        return errorCount;
+    }
+    
+    double getErrorRate() {
+        return getRequests() == 0 ? 0 : 100.0 * getErrors() / getRequests();
+    }
+    
+    /**
+     * Перцентиль задержки в миллисекундах
+     */
+    double getPercentileMillis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+    
+    double getMaxMillis() {
+        return histogram.getMaxValue() / 1000.0;
+    }
+    
+    Histogram getHistogram() {
+        return histogram;
+    }
+}
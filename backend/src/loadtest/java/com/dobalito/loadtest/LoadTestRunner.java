@@ -0,0 +1,264 @@
+package com.dobalito.loadtest;
+
+import com.dobalito.DobalitoApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный тест API: поднимает приложение (H2 в режиме PostgreSQL или локальный PostgreSQL),
+ * запускает виртуальных пользователей и печатает p50/p95/p99, пропускную способность и долю ошибок по эндпоинтам.
+ * Параметры - системные свойства loadtest.* (их задает профиль loadtest в pom.xml, см. src/loadtest/README.md).
+ */
+public class LoadTestRunner {
+    
+    /**
+     * Параметры прогона
+     */
+    record Settings(int users, Duration duration, Duration warmup, Duration rampUp, Duration thinkTime,
+                    int sessionLength, String baseUrl, String dbUrl, String dbUser, String dbPassword,
+                    Path reportDir) {
+        
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.parseInt(property("loadtest.users", "50")),
+                    DurationStyle.detectAndParse(property("loadtest.duration", "60s")),
+                    DurationStyle.detectAndParse(property("loadtest.warmup", "15s")),
+                    DurationStyle.detectAndParse(property("loadtest.ramp-up", "10s")),
+                    DurationStyle.detectAndParse(property("loadtest.think-time", "200ms")),
+                    Integer.parseInt(property("loadtest.session-length", "50")),
+                    property("loadtest.base-url", null),
+                    property("loadtest.db-url", null),
+                    property("loadtest.db-user", "postgres"),
+                    property("loadtest.db-password", "password"),
+                    Paths.get(property("loadtest.report-dir", "target/loadtest")));
+        }
+        
+        /**
+         * Пустое значение (так профиль передает незаданный параметр) считается отсутствующим
+         */
+        private static String property(String name, String defaultValue) {
+            String value = System.getProperty(name);
+            return value == null || value.isBlank() ? defaultValue : value.trim();
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        
+        ConfigurableApplicationContext context = null;
+        String baseUrl = settings.baseUrl();
+        if (baseUrl == null) {
+            context = startApplication(settings);
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        } else {
+            System.out.println("Внешний сервер " + baseUrl + ": для входа сотен пользователей отключите "
+                    + "auth.rate-limit.enabled, иначе send-code упрется в лимит по IP");
+        }
+        
+        try {
+            String apiUrl = baseUrl + "/api/v1";
+            run(settings, apiUrl, activeCategoryIds(apiUrl), describe(settings, baseUrl));
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+    
+    /**
+     * Приложение в этом же процессе на случайном порту. Без loadtest.db-url - H2 в памяти
+     * (схема из сущностей, как в тестах), с ним - PostgreSQL со схемой из миграций Flyway.
+     */
+    private static ConfigurableApplicationContext startApplication(Settings settings) {
+        // DevTools перезапустил бы приложение в своем класслоадере
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--logging.level.com.dobalito=WARN",
+                "--logging.level.org.springframework.security=WARN",
+                // Все пользователи приходят с одного адреса - лимит по IP сработал бы сразу
+                "--auth.rate-limit.enabled=false",
+                "--avatars.gc.enabled=false"));
+        if (settings.dbUrl() == null) {
+            args.addAll(List.of(
+                    "--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.jpa.hibernate.ddl-auto=create",
+                    "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                    "--spring.flyway.enabled=false",
+                    "--spring.sql.init.mode=never"));
+        } else {
+            args.addAll(List.of(
+                    "--spring.datasource.url=" + settings.dbUrl(),
+                    "--spring.datasource.username=" + settings.dbUser(),
+                    "--spring.datasource.password=" + settings.dbPassword()));
+        }
+        return SpringApplication.run(DobalitoApplication.class, args.toArray(String[]::new));
+    }
+    
+    /**
+     * Категории для создаваемых заданий (DataLoader заводит их при первом старте)
+     */
+    private static List<Long> activeCategoryIds(String apiUrl) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(apiUrl + "/categories/active")).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode category : new ObjectMapper().readTree(response.body())) {
+            ids.add(category.path("id").asLong());
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("В базе нет активных категорий - задания создавать не с чем");
+        }
+        return ids;
+    }
+    
+    private static void run(Settings settings, String apiUrl, List<Long> categoryIds, String header)
+            throws InterruptedException, IOException {
+        Map<String, EndpointStats> stats = new LinkedHashMap<>();
+        for (String endpoint : VirtualUser.ENDPOINTS) {
+            stats.put(endpoint, new EndpointStats(endpoint));
+        }
+        Queue<long[]> openTasks = new ConcurrentLinkedQueue<>();
+        
+        System.out.println(header);
+        
+        long startNanos = System.nanoTime();
+        long measureStartNanos = startNanos + settings.warmup().toNanos();
+        long deadlineNanos = measureStartNanos + settings.duration().toNanos();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(settings.users());
+        long rampStepNanos = settings.users() > 1 ? settings.rampUp().toNanos() / (settings.users() - 1) : 0;
+        for (int i = 0; i < settings.users(); i++) {
+            // Уникальный номер на пользователя: 7 900 000 00 01, 7 900 000 00 02, ...
+            String phone = String.format("7900%07d", i + 1);
+            executor.execute(new VirtualUser(apiUrl, phone, stats, openTasks, categoryIds, settings, deadlineNanos));
+            TimeUnit.NANOSECONDS.sleep(rampStepNanos);
+        }
+        
+        TimeUnit.NANOSECONDS.sleep(Math.max(0, measureStartNanos - System.nanoTime()));
+        stats.values().forEach(EndpointStats::reset);
+        System.out.println("Прогрев завершен, измерение " + format(settings.duration()));
+        
+        TimeUnit.NANOSECONDS.sleep(Math.max(0, deadlineNanos - System.nanoTime()));
+        stats.values().forEach(EndpointStats::finish);
+        double measuredSeconds = (System.nanoTime() - measureStartNanos) / 1e9;
+        
+        executor.shutdown();
+        if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        
+        String table = report(stats.values(), measuredSeconds);
+        System.out.println(table);
+        writeReport(settings.reportDir(), header + "\n" + table, stats.values(), measuredSeconds);
+    }
+    
+    private static String describe(Settings settings, String baseUrl) {
+        String database = settings.baseUrl() != null ? "внешний сервер"
+                : settings.dbUrl() != null ? settings.dbUrl() : "H2 (in-memory, режим PostgreSQL)";
+        return String.format(Locale.ROOT,
+                "Нагрузочный тест %s%nБаза: %s%nПользователей: %d, разгон %s, прогрев %s, измерение %s, "
+                        + "пауза между действиями ~%s, действий за сессию %d",
+                baseUrl, database, settings.users(), format(settings.rampUp()), format(settings.warmup()),
+                format(settings.duration()), format(settings.thinkTime()), settings.sessionLength());
+    }
+    
+    private static String report(Iterable<EndpointStats> stats, double seconds) {
+        StringWriter buffer = new StringWriter();
+        PrintWriter out = new PrintWriter(buffer);
+        String row = "%-36s %9s %9s %8s %9s %9s %9s %9s%n";
+        out.printf(Locale.ROOT, row, "Эндпоинт", "Запросов", "Запр/с", "Ошибки", "p50 мс", "p95 мс", "p99 мс", "max мс");
+        long totalRequests = 0;
+        long totalErrors = 0;
+        for (EndpointStats endpoint : stats) {
+            totalRequests += endpoint.getRequests();
+            totalErrors += endpoint.getErrors();
+            if (endpoint.getRequests() == 0) {
+                out.printf(Locale.ROOT, row, endpoint.getName(), 0, "-", "-", "-", "-", "-", "-");
+                continue;
+            }
+            out.printf(Locale.ROOT, "%-36s %9d %9.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint.getName(), endpoint.getRequests(), endpoint.getRequests() / seconds,
+                    endpoint.getErrorRate(),
+                    endpoint.getPercentileMillis(50), endpoint.getPercentileMillis(95),
+                    endpoint.getPercentileMillis(99), endpoint.getMaxMillis());
+        }
+        out.printf(Locale.ROOT, "%-36s %9d %9.1f %7.2f%%%n", "Всего", totalRequests, totalRequests / seconds,
+                totalRequests == 0 ? 0 : 100.0 * totalErrors / totalRequests);
+        out.flush();
+        return buffer.toString();
+    }
+    
+    /**
+     * Текстовый отчет и CSV для сравнения прогонов; полные гистограммы - в формате HdrHistogram (.hgrm)
+     */
+    private static void writeReport(Path dir, String report, Iterable<EndpointStats> stats, double seconds)
+            throws IOException {
+        Files.createDirectories(dir);
+        String name = "report-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        
+        StringBuilder csv = new StringBuilder("endpoint,requests,throughput_rps,errors,error_rate_pct,p50_ms,p95_ms,p99_ms,max_ms\n");
+        StringBuilder histograms = new StringBuilder();
+        for (EndpointStats endpoint : stats) {
+            if (endpoint.getRequests() == 0) {
+                continue;
+            }
+            csv.append(String.format(Locale.ROOT, "\"%s\",%d,%.2f,%d,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                    endpoint.getName(), endpoint.getRequests(), endpoint.getRequests() / seconds,
+                    endpoint.getErrors(), endpoint.getErrorRate(),
+                    endpoint.getPercentileMillis(50), endpoint.getPercentileMillis(95),
+                    endpoint.getPercentileMillis(99), endpoint.getMaxMillis()));
+            
+            ByteArrayOutputStream percentiles = new ByteArrayOutputStream();
+            endpoint.getHistogram().outputPercentileDistribution(
+                    new PrintStream(percentiles, true, StandardCharsets.UTF_8), 1000.0);
+            histograms.append("# ").append(endpoint.getName()).append(" (мс)\n")
+                    .append(percentiles.toString(StandardCharsets.UTF_8)).append('\n');
+        }
+        
+        Files.writeString(dir.resolve(name + ".txt"), report, StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve(name + ".csv"), csv, StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve(name + ".hgrm"), histograms, StandardCharsets.UTF_8);
+        System.out.println("Отчет: " + dir.toAbsolutePath().resolve(name + ".{txt,csv,hgrm}"));
+    }
+    
+    private static String format(Duration duration) {
+        return duration.toMillis() % 1000 == 0 ? duration.toSeconds() + "s" : duration.toMillis() + "ms";
+    }
+}
@@ -0,0 +1,232 @@
+package com.dobalito.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Виртуальный пользователь: вход по коду из SMS, затем сессия из случайных действий
+ * в пропорциях реального трафика (в основном чтение ленты, немного создания и назначения заданий).
+ * Закрытая модель нагрузки: следующий запрос уходит после ответа на предыдущий и паузы "на чтение".
+ */
+class VirtualUser implements Runnable {
+    
+    static final String SEND_CODE = "POST /auth/send-verification-code";
+    static final String VERIFY_CODE = "POST /auth/verify-code";
+    static final String OPEN_TASKS = "GET /tasks/open";
+    static final String MY_OPEN_TASKS = "GET /tasks/my/open";
+    static final String ACTIVE_CATEGORIES = "GET /categories/active";
+    static final String CREATE_TASK = "POST /tasks";
+    static final String ASSIGN_TASK = "POST /tasks/{id}/assign";
+    
+    static final List<String> ENDPOINTS = List.of(SEND_CODE, VERIFY_CODE, OPEN_TASKS, MY_OPEN_TASKS,
+            ACTIVE_CATEGORIES, CREATE_TASK, ASSIGN_TASK);
+    
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    
+    private final String apiUrl;
+    private final String phone;
+    private final Map<String, EndpointStats> stats;
+    private final Queue<long[]> openTasks;
+    private final List<Long> categoryIds;
+    private final LoadTestRunner.Settings settings;
+    private final long deadlineNanos;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private HttpClient client;
+    private long userId;
+    private String categoriesEtag;
+    
+    VirtualUser(String apiUrl, String phone, Map<String, EndpointStats> stats, Queue<long[]> openTasks,
+                List<Long> categoryIds, LoadTestRunner.Settings settings, long deadlineNanos) {
+        this.apiUrl = apiUrl;
+        this.phone = phone;
+        this.stats = stats;
+        this.openTasks = openTasks;
+        this.categoryIds = categoryIds;
+        this.settings = settings;
+        this.deadlineNanos = deadlineNanos;
+    }
+    
+    @Override
+    public void run() {
+        while (System.nanoTime() < deadlineNanos && !Thread.currentThread().isInterrupted()) {
+            // Новая сессия: новые cookie и повторный вход
+            client = HttpClient.newBuilder()
+                    .cookieHandler(new CookieManager())
+                    .connectTimeout(REQUEST_TIMEOUT)
+                    .build();
+            categoriesEtag = null;
+            if (!login()) {
+                pause();
+                continue;
+            }
+            for (int i = 0; i < settings.sessionLength() && System.nanoTime() < deadlineNanos; i++) {
+                pause();
+                nextAction();
+            }
+        }
+    }
+    
+    private boolean login() {
+        JsonNode sent = sendForBody(SEND_CODE, post("/auth/send-verification-code", "{\"phone\":\"" + phone + "\"}"));
+        if (sent == null || !sent.hasNonNull("code")) {
+            return false;
+        }
+        String body = "{\"phone\":\"" + phone + "\",\"code\":\"" + sent.get("code").asText()
+                + "\",\"name\":\"Load " + phone + "\"}";
+        JsonNode verified = sendForBody(VERIFY_CODE, post("/auth/verify-code", body));
+        if (verified == null) {
+            return false;
+        }
+        userId = verified.path("user").path("id").asLong();
+        return true;
+    }
+    
+    private void nextAction() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roll = random.nextInt(100);
+        if (roll < 40) {
+            // Большинство смотрит первую страницу ленты, часть листает дальше
+            int page = random.nextInt(10) < 7 ? 0 : random.nextInt(1, 5);
+            send(OPEN_TASKS, get("/tasks/open?page=" + page + "&size=10"));
+        } else if (roll < 65) {
+            browseCategories();
+        } else if (roll < 85) {
+            send(MY_OPEN_TASKS, get("/tasks/my/open?page=0&size=10"));
+        } else if (roll < 95) {
+            createTask(random);
+        } else {
+            assignTask();
+        }
+    }
+    
+    private void createTask(ThreadLocalRandom random) {
+        LocalDateTime start = LocalDateTime.now().plusDays(random.nextInt(1, 30)).withNano(0);
+        long categoryId = categoryIds.get(random.nextInt(categoryIds.size()));
+        String body = "{\"title\":\"Нагрузочное задание " + random.nextInt(1_000_000) + "\","
+                + "\"description\":\"Создано нагрузочным тестом\","
+                + "\"startDate\":\"" + start + "\",\"endDate\":\"" + start.plusHours(4) + "\","
+                + "\"categoryId\":" + categoryId + "}";
+        JsonNode created = sendForBody(CREATE_TASK, post("/tasks", body));
+        if (created != null && created.path("data").hasNonNull("id")) {
+            openTasks.offer(new long[] {created.path("data").path("id").asLong(), userId});
+        }
+    }
+    
+    /**
+     * Справочник категорий с условным запросом, как у браузера: после первого ответа - 304 без тела
+     */
+    private void browseCategories() {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(apiUrl + "/categories/active"))
+                .timeout(REQUEST_TIMEOUT);
+        if (categoriesEtag != null) {
+            request.header("If-None-Match", categoriesEtag);
+        }
+        HttpResponse<byte[]> response = send(ACTIVE_CATEGORIES, request.GET().build());
+        if (response != null) {
+            response.headers().firstValue("ETag").ifPresent(etag -> categoriesEtag = etag);
+        }
+    }
+    
+    /**
+     * Взять чужое открытое задание исполнителем. Свои задания возвращаются в очередь.
+     */
+    private void assignTask() {
+        long[] task = openTasks.poll();
+        if (task == null) {
+            send(OPEN_TASKS, get("/tasks/open?page=0&size=10"));
+            return;
+        }
+        if (task[1] == userId) {
+            openTasks.offer(task);
+            send(OPEN_TASKS, get("/tasks/open?page=0&size=10"));
+            return;
+        }
+        send(ASSIGN_TASK, post("/tasks/" + task[0] + "/assign?executorId=" + userId, ""));
+    }
+    
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(apiUrl + path)).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+    
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(apiUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+    
+    /**
+     * Выполнить запрос и вернуть тело успешного ответа (null при ошибке или пустом теле)
+     */
+    private JsonNode sendForBody(String endpoint, HttpRequest request) {
+        HttpResponse<byte[]> response = send(endpoint, request);
+        if (response == null || response.body().length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Выполнить запрос и записать задержку. Ошибка - ответ не 2xx/304, success=false в теле или исключение.
+     * Возвращает успешный ответ или null.
+     */
+    private HttpResponse<byte[]> send(String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            long latency = System.nanoTime() - start;
+            boolean success = (response.statusCode() / 100 == 2 || response.statusCode() == 304)
+                    && !reportsFailure(response.body());
+            stats.get(endpoint).record(latency, success);
+            return success ? response : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            stats.get(endpoint).record(System.nanoTime() - start, false);
+            return null;
+        }
+    }
+    
+    /**
+     * Часть эндпоинтов при ошибке отвечает 200 с {"success": false}
+     */
+    private boolean reportsFailure(byte[] body) throws IOException {
+        if (body.length == 0 || body[0] != '{') {
+            return false;
+        }
+        return !objectMapper.readTree(body).path("success").asBoolean(true);
+    }
+    
+    private void pause() {
+        long thinkMillis = settings.thinkTime().toMillis();
+        if (thinkMillis <= 0) {
+            return;
+        }
+        try {
+            // Равномерно от половины до полутора средних, чтобы пользователи не шли в ногу
+            Thread.sleep(ThreadLocalRandom.current().nextLong(thinkMillis / 2, thinkMillis * 3 / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.dobalito.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение частоты запросов к эндпоинтам кодов верификации по номеру телефона и IP клиента.
+ * Работает до Spring Security и контроллера: лишние запросы получают 429 с Retry-After,
+ * не доходя до БД и отправки SMS.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AuthRateLimitFilter.class);
+    
+    private static final String SEND_CODE_PATH = "/api/v1/auth/send-verification-code";
+    private static final Set<String> VERIFY_CODE_PATHS = Set.of(
+        "/api/v1/auth/verify-code",
+        "/api/v1/auth/check-code",
+        "/api/v1/auth/test-verify"
+    );
+    // Единственный эндпоинт, где контроллер берет номер из параметров (@RequestParam), остальные - из JSON тела
+    private static final String PHONE_PARAM_PATH = "/api/v1/auth/test-verify";
+    
+    // Тела запросов авторизации маленькие: более длинные отклоняются (413), а не пропускаются без лимита по номеру
+    private static final int MAX_BODY_BYTES = 4096;
+    
+    private final boolean enabled;
+    private final GcraRateLimiter sendCodePerPhone;
+    private final GcraRateLimiter sendCodePerIp;
+    private final GcraRateLimiter verifyCodePerPhone;
+    private final GcraRateLimiter verifyCodePerIp;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    public AuthRateLimitFilter(
+            @Value("${auth.rate-limit.enabled:true}") boolean enabled,
+            @Value("${auth.rate-limit.send-code.per-phone.limit:5}") int sendPhoneLimit,
+            @Value("${auth.rate-limit.send-code.per-phone.period:1h}") Duration sendPhonePeriod,
+            @Value("${auth.rate-limit.send-code.per-ip.limit:30}") int sendIpLimit,
+            @Value("${auth.rate-limit.send-code.per-ip.period:1h}") Duration sendIpPeriod,
+            @Value("${auth.rate-limit.verify-code.per-phone.limit:10}") int verifyPhoneLimit,
+            @Value("${auth.rate-limit.verify-code.per-phone.period:10m}") Duration verifyPhonePeriod,
+            @Value("${auth.rate-limit.verify-code.per-ip.limit:60}") int verifyIpLimit,
+            @Value("${auth.rate-limit.verify-code.per-ip.period:10m}") Duration verifyIpPeriod) {
+        this.enabled = enabled;
+        this.sendCodePerPhone = new GcraRateLimiter("send-code.per-phone", sendPhoneLimit, sendPhonePeriod);
+        this.sendCodePerIp = new GcraRateLimiter("send-code.per-ip", sendIpLimit, sendIpPeriod);
+        this.verifyCodePerPhone = new GcraRateLimiter("verify-code.per-phone", verifyPhoneLimit, verifyPhonePeriod);
+        this.verifyCodePerIp = new GcraRateLimiter("verify-code.per-ip", verifyIpLimit, verifyIpPeriod);
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || !"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI();
+        return !SEND_CODE_PATH.equals(path) && !VERIFY_CODE_PATHS.contains(path);
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        boolean sendCode = SEND_CODE_PATH.equals(request.getRequestURI());
+        GcraRateLimiter perIp = sendCode ? sendCodePerIp : verifyCodePerIp;
+        GcraRateLimiter perPhone = sendCode ? sendCodePerPhone : verifyCodePerPhone;
+        
+        // Сначала IP: отсекает поток запросов еще до чтения тела
+        // (адрес клиента за прокси берется из X-Forwarded-For, см. server.forward-headers-strategy)
+        if (reject(perIp, request.getRemoteAddr(), response)) {
+            return;
+        }
+        
+        // Ключ лимита берется из того же источника, что читает контроллер, иначе номер в query обходит лимит по телу
+        HttpServletRequest requestToUse = request;
+        String phone;
+        if (PHONE_PARAM_PATH.equals(request.getRequestURI())) {
+            phone = digitsOnly(request.getParameter("phone"));
+        } else {
+            if (request.getContentLengthLong() > MAX_BODY_BYTES) {
+                rejectTooLarge(response);
+                return;
+            }
+            byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                rejectTooLarge(response);
+                return;
+            }
+            requestToUse = new CachedBodyRequest(request, body);
+            phone = extractPhone(body);
+        }
+        
+        if (phone != null && !phone.isEmpty() && reject(perPhone, phone, response)) {
+            return;
+        }
+        
+        filterChain.doFilter(requestToUse, response);
+    }
+    
+    /**
+     * Удаление восстановившихся ключей, чтобы карты не росли от разовых номеров и адресов
+     */
+    @Scheduled(fixedDelayString = "${auth.rate-limit.purge-interval:PT5M}")
+    public void purgeIdleKeys() {
+        for (GcraRateLimiter limiter : List.of(sendCodePerPhone, sendCodePerIp, verifyCodePerPhone, verifyCodePerIp)) {
+            limiter.purgeIdle();
+        }
+    }
+    
+    private boolean reject(GcraRateLimiter limiter, String key, HttpServletResponse response) throws IOException {
+        long waitNanos = limiter.tryAcquire(key);
+        if (waitNanos == 0) {
+            return false;
+        }
+        
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        logger.warn("Rate limit {} exceeded for {}, retry after {}s", limiter.getName(), key, retryAfterSeconds);
+        
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", false);
+        body.put("message", "Слишком много запросов. Повторите через " + retryAfterSeconds + " сек.");
+        body.put("retryAfterSeconds", retryAfterSeconds);
+        
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), body);
+        return true;
+    }
+    
+    private void rejectTooLarge(HttpServletResponse response) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", false);
+        body.put("message", "Слишком большой запрос");
+        
+        response.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+    
+    /**
+     * Номер телефона из JSON тела в том же виде, что после PhoneVerificationService.normalizePhone
+     */
+    private String extractPhone(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode phone = objectMapper.readTree(body).get("phone");
+            return phone != null && phone.isTextual() ? digitsOnly(phone.asText()) : null;
+        } catch (IOException e) {
+            // Невалидный JSON - отклонит контроллер, здесь действует только лимит по IP
+            return null;
+        }
+    }
+    
+    private static String digitsOnly(String phone) {
+        return phone == null ? null : phone.replaceAll("[^0-9]", "");
+    }
+    
+    /**
+     * Запрос с телом, прочитанным фильтром целиком (не больше MAX_BODY_BYTES); контроллер читает его из памяти
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        
+        private final byte[] body;
+        
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+        
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+                
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+                
+                /**
+                 * Тело уже в памяти: неблокирующий читатель сразу получает все данные и конец потока
+                 */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException | RuntimeException e) {
+                        readListener.onError(e);
+                    }
+                }
+                
+                @Override
+                public int read() {
+                    return input.read();
+                }
+                
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+        
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+        
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+        
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), Charset.forName(encoding)));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.dobalito.config;
+
+import com.dobalito.service.BlobStore;
+import com.dobalito.service.CachingBlobStore;
+import com.dobalito.service.LocalBlobStore;
+import com.dobalito.service.S3BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Paths;
+
+/**
+ * Выбор хранилища файлов: storage.backend=local (директория на диске, по умолчанию)
+ * или s3 (S3 совместимый бакет с локальным дисковым кешем - для нескольких экземпляров приложения)
+ */
+@Configuration
+public class BlobStoreConfig {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BlobStoreConfig.class);
+    
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "local", matchIfMissing = true)
+    public BlobStore localBlobStore(@Value("${storage.local.root:uploads}") String root) throws IOException {
+        BlobStore store = new LocalBlobStore(Paths.get(root));
+        logger.info("Хранилище файлов: {}", store.getName());
+        return store;
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+    public S3Client s3Client(
+            @Value("${storage.s3.endpoint:}") String endpoint,
+            @Value("${storage.s3.region:us-east-1}") String region,
+            @Value("${storage.s3.path-style-access:true}") boolean pathStyleAccess,
+            @Value("${storage.s3.checksum-validation:true}") boolean checksumValidation,
+            @Value("${storage.s3.access-key:}") String accessKey,
+            @Value("${storage.s3.secret-key:}") String secretKey) {
+        var builder = S3Client.builder()
+            .region(Region.of(region))
+            .credentialsProvider(credentials(accessKey, secretKey))
+            .serviceConfiguration(S3Configuration.builder()
+                .pathStyleAccessEnabled(pathStyleAccess)
+                .checksumValidationEnabled(checksumValidation)
+                .build());
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Подписанные ссылки строятся на публичный адрес хранилища: внутренний адрес (например, http://minio:9000)
+     * из браузера недоступен
+     */
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+    public S3Presigner s3Presigner(
+            @Value("${storage.s3.endpoint:}") String endpoint,
+            @Value("${storage.s3.public-endpoint:}") String publicEndpoint,
+            @Value("${storage.s3.region:us-east-1}") String region,
+            @Value("${storage.s3.path-style-access:true}") boolean pathStyleAccess,
+            @Value("${storage.s3.access-key:}") String accessKey,
+            @Value("${storage.s3.secret-key:}") String secretKey) {
+        var builder = S3Presigner.builder()
+            .region(Region.of(region))
+            .credentialsProvider(credentials(accessKey, secretKey))
+            .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(pathStyleAccess).build());
+        String presignEndpoint = publicEndpoint.isEmpty() ? endpoint : publicEndpoint;
+        if (!presignEndpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(presignEndpoint));
+        }
+        return builder.build();
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+    public CachingBlobStore s3BlobStore(
+            S3Client s3Client,
+            S3Presigner s3Presigner,
+            @Value("${storage.s3.bucket:dobalito}") String bucket,
+            @Value("${storage.s3.prefix:}") String prefix,
+            @Value("${storage.s3.create-bucket:false}") boolean createBucket,
+            @Value("${storage.s3.redirect-reads:true}") boolean redirectReads,
+            @Value("${storage.s3.cache.dir:uploads/cache}") String cacheDir,
+            @Value("${storage.s3.cache.max-size:1GB}") DataSize cacheMaxSize) throws IOException {
+        S3BlobStore s3 = new S3BlobStore(s3Client, redirectReads ? s3Presigner : null, bucket, prefix);
+        if (createBucket) {
+            s3.createBucketIfMissing();
+        }
+        // Чтения через сервер приложения (без redirect-reads или для вызовов get) идут через локальный кеш
+        CachingBlobStore store = new CachingBlobStore(s3, Paths.get(cacheDir), cacheMaxSize.toBytes());
+        logger.info("Хранилище файлов: {}", store.getName());
+        return store;
+    }
+    
+    private AwsCredentialsProvider credentials(String accessKey, String secretKey) {
+        if (accessKey.isEmpty()) {
+            // Переменные окружения AWS_*, профиль или роль экземпляра
+            return DefaultCredentialsProvider.create();
+        }
+        return StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+    }
+}
@@ -6,9 +6,11 @@ import com.dobalito.repository.CategoryRepository;
 import com.dobalito.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 @Component
+@Profile("!datagen") // Синтетические данные загружает SyntheticDataGenerator
 public class DataLoader implements CommandLineRunner {
     
     @Autowired
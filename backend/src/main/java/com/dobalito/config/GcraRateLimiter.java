@@ -0,0 +1,67 @@
+package com.dobalito.config;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничитель частоты по ключу (GCRA - эквивалент token bucket).
+ * Допускает limit запросов за period с равномерным восстановлением.
+ * Состояние ключа - одно число (theoretical arrival time) в AtomicLong, обновляется CAS без блокировок.
+ */
+public class GcraRateLimiter {
+    
+    private final String name;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final Map<String, AtomicLong> arrivals = new ConcurrentHashMap<>();
+    
+    public GcraRateLimiter(String name, int limit, Duration period) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Rate limit '" + name + "' must allow at least one request");
+        }
+        this.name = name;
+        this.emissionIntervalNanos = period.toNanos() / limit;
+        this.burstToleranceNanos = emissionIntervalNanos * (limit - 1);
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Попытаться пропустить запрос для ключа.
+     * Возвращает 0, если запрос разрешен, иначе через сколько наносекунд можно повторить.
+     */
+    public long tryAcquire(String key) {
+        AtomicLong arrival = arrivals.computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+        while (true) {
+            long now = System.nanoTime();
+            long stored = arrival.get();
+            // nanoTime сравниваем только через разность (возможно переполнение)
+            long tat = stored - now > 0 ? stored : now;
+            long waitNanos = tat - now - burstToleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (arrival.compareAndSet(stored, tat + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+    
+    /**
+     * Удалить ключи, которые полностью восстановились (их состояние не отличается от отсутствующего)
+     */
+    public int purgeIdle() {
+        long now = System.nanoTime();
+        int sizeBefore = arrivals.size();
+        arrivals.values().removeIf(arrival -> arrival.get() - now <= 0);
+        return Math.max(0, sizeBefore - arrivals.size());
+    }
+    
+    public int size() {
+        return arrivals.size();
+    }
+}
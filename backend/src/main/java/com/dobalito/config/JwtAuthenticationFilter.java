@@ -1,7 +1,10 @@
 package com.dobalito.config;
 
 import com.dobalito.entity.User;
+import com.dobalito.service.PrincipalCache;
 import com.dobalito.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -17,6 +20,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * JWT Authentication Filter для проверки токенов в запросах
@@ -30,18 +34,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private PrincipalCache principalCache;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                   FilterChain filterChain) throws ServletException, IOException {
         
         String token = getTokenFromRequest(request);
         
-        if (token != null && jwtUtil.validateToken(token)) {
+        // Один разбор токена: проверка подписи, срока действия и извлечение claims
+        Optional<JwtClaims> claims = verifyToken(token);
+        
+        if (claims.isPresent()) {
             try {
-                String phone = jwtUtil.getUsernameFromToken(token);
+                String phone = claims.get().getPhone();
                 
-                // Проверяем, что пользователь все еще существует
-                var userOptional = userService.getUserByPhone(phone);
+                // Проверяем, что пользователь все еще существует (через кеш, без запроса в БД на каждый вызов)
+                var userOptional = principalCache.getOrLoad(claims.get().getUserId(), phone,
+                        () -> userService.getUserByPhone(phone));
                 if (userOptional.isPresent()) {
                     User user = userOptional.get();
                     
@@ -63,10 +77,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
+    /**
+     * Проверка токена с замером времени (dobalito.jwt.verification, тег result=valid|invalid).
+     * Запросы без токена не замеряются.
+     */
+    private Optional<JwtClaims> verifyToken(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Optional<JwtClaims> claims = jwtUtil.verifyToken(token);
+        sample.stop(Timer.builder("dobalito.jwt.verification")
+                .description("Проверка подписи и срока действия JWT")
+                .tag("result", claims.isPresent() ? "valid" : "invalid")
+                .register(meterRegistry));
+        return claims;
+    }
+    
     /**
      * Извлекает JWT токен из cookies или заголовка Authorization
      */
-    private String getTokenFromRequest(HttpServletRequest request) {
+    String getTokenFromRequest(HttpServletRequest request) {
         // Сначала проверяем cookies
         Cookie[] cookies = request.getCookies();
         if (cookies != null) {
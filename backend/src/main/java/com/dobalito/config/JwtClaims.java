@@ -0,0 +1,61 @@
+package com.dobalito.config;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+/**
+ * Проверенные claims JWT токена (результат однократного разбора и проверки подписи)
+ */
+public final class JwtClaims {
+    
+    private final String phone;
+    private final Long userId;
+    private final String name;
+    private final Date issuedAt;
+    private final Date expiration;
+    
+    private JwtClaims(String phone, Long userId, String name, Date issuedAt, Date expiration) {
+        this.phone = phone;
+        this.userId = userId;
+        this.name = name;
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+    }
+    
+    static JwtClaims from(Claims claims) {
+        return new JwtClaims(
+            claims.getSubject(),
+            claims.get("userId", Long.class),
+            claims.get("name", String.class),
+            claims.getIssuedAt(),
+            claims.getExpiration()
+        );
+    }
+    
+    /**
+     * Номер телефона пользователя (subject токена)
+     */
+    public String getPhone() {
+        return phone;
+    }
+    
+    /**
+     * ID пользователя, может отсутствовать в старых токенах
+     */
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public Date getIssuedAt() {
+        return issuedAt;
+    }
+    
+    public Date getExpiration() {
+        return expiration;
+    }
+}
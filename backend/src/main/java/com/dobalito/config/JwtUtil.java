@@ -2,13 +2,16 @@ package com.dobalito.config;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @Component
 public class JwtUtil {
@@ -19,8 +22,17 @@ public class JwtUtil {
     @Value("${jwt.expiration:86400000}") // 24 часа по умолчанию
     private Long expiration;
     
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    // Ключ и парсер неизменяемы и потокобезопасны - создаем один раз при старте
+    private SecretKey signingKey;
+    
+    private JwtParser jwtParser;
+    
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
     
     /**
@@ -48,7 +60,7 @@ public class JwtUtil {
                 .setSubject(subject)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
     
@@ -92,11 +104,23 @@ public class JwtUtil {
      * Извлекает все claims из токена
      */
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return jwtParser.parseClaimsJws(token).getBody();
+    }
+    
+    /**
+     * Проверяет подпись и срок действия токена за один разбор и возвращает его claims.
+     * Пустой результат, если токен невалиден или истек.
+     */
+    public Optional<JwtClaims> verifyToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            // Парсер сам проверяет exp и выбрасывает ExpiredJwtException
+            return Optional.of(JwtClaims.from(getAllClaimsFromToken(token)));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
     }
     
     /**
@@ -111,23 +135,16 @@ public class JwtUtil {
      * Валидирует токен
      */
     public Boolean validateToken(String token, String phone) {
-        try {
-            final String tokenPhone = getUsernameFromToken(token);
-            return (tokenPhone.equals(phone) && !isTokenExpired(token));
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+        return verifyToken(token)
+                .map(claims -> claims.getPhone().equals(phone))
+                .orElse(false);
     }
     
     /**
      * Проверяет валидность токена без проверки subject
      */
     public Boolean validateToken(String token) {
-        try {
-            return !isTokenExpired(token);
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+        return verifyToken(token).isPresent();
     }
     
     /**
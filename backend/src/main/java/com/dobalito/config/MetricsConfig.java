@@ -0,0 +1,23 @@
+package com.dobalito.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Метрики Micrometer (экспорт через /actuator/prometheus).
+ * Сервисы с @Timed("dobalito.service") пишут время каждого публичного метода с тегами class/method,
+ * гистограммы и перцентили p50/p95/p99 настраиваются в management.metrics.distribution.
+ * Кеши и очередь SMS регистрируют свои метрики сами (MeterBinder).
+ */
+@Configuration
+public class MetricsConfig {
+    
+    public static final String SERVICE_TIMER = "dobalito.service";
+    
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
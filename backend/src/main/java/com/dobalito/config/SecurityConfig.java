@@ -1,5 +1,6 @@
 package com.dobalito.config;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -32,6 +33,8 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // Завершение потоковых ответов (NDJSON выгрузки): доступ уже проверен на исходном запросе
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 // Публичные endpoints
                 .requestMatchers("/api/v1/auth/**").permitAll()
                 .requestMatchers("/api/v1/categories/**").permitAll()
@@ -40,6 +43,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/v1/info/**").permitAll() // Информация о приложении доступна всем
                 .requestMatchers("/api/v1/app/**").permitAll()
                 .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
+                // Проверка живости и сбор метрик Prometheus (наружу через nginx не проксируются)
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                 // Все остальные запросы требуют аутентификации
                 .anyRequest().authenticated()
             )
@@ -0,0 +1,62 @@
+package com.dobalito.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Счетчик SQL запросов Hibernate в текущем потоке.
+ * Регистрируется как StatementInspector и считает только между start() и stop(), поэтому фоновые потоки
+ * (outbox relay, планировщик) не учитываются. Подсчеты вкладываются: запрос внутри теста бюджета
+ * (TaskListStatementBudgetTest) попадает и в метрику SqlStatementMetricsFilter, и в проверку теста.
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+    
+    // [0] - запросов с начала внешнего подсчета, [1] - глубина вложенности start()
+    private static final ThreadLocal<int[]> COUNTER = new ThreadLocal<>();
+    
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+    
+    @Override
+    public String inspect(String sql) {
+        int[] counter = COUNTER.get();
+        if (counter != null) {
+            counter[0]++;
+        }
+        return sql;
+    }
+    
+    /**
+     * Начать подсчет для текущего потока. Возвращает отметку, которую нужно передать в stop()
+     */
+    public static int start() {
+        int[] counter = COUNTER.get();
+        if (counter == null) {
+            counter = new int[2];
+            COUNTER.set(counter);
+        }
+        counter[1]++;
+        return counter[0];
+    }
+    
+    /**
+     * Закончить подсчет и вернуть число запросов, выполненных после start()
+     */
+    public static int stop(int mark) {
+        int[] counter = COUNTER.get();
+        if (counter == null) {
+            return 0;
+        }
+        if (--counter[1] == 0) {
+            COUNTER.remove();
+        }
+        return counter[0] - mark;
+    }
+}
@@ -0,0 +1,53 @@
+package com.dobalito.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Число SQL запросов на API запрос в метрике dobalito.http.sql.statements с тегами method и uri
+ * (шаблон маршрута). Только наблюдение: рост по эндпоинту - признак N+1 на реальных данных.
+ * Бюджет запросов проверяют тесты (TaskListStatementBudgetTest), в рантайме запросы не прерываются.
+ */
+@Component
+public class SqlStatementMetricsFilter extends OncePerRequestFilter {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        int mark = SqlStatementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            recordStatements(request, SqlStatementCounter.stop(mark));
+        }
+    }
+    
+    private void recordStatements(HttpServletRequest request, int statements) {
+        // Шаблон маршрута вместо URI, чтобы id в пути не размножали временные ряды
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("dobalito.http.sql.statements")
+                .description("SQL запросов на HTTP запрос")
+                .tag("method", request.getMethod())
+                .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                .register(meterRegistry)
+                .record(statements);
+    }
+}
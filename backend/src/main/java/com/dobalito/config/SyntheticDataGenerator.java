@@ -0,0 +1,505 @@
+package com.dobalito.config;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Генератор синтетических данных большого объема для бенчмарков и проверки планов запросов.
+ * Запуск: --spring.profiles.active=datagen (см. application-datagen.yml), после загрузки приложение завершается.
+ *
+ * Строки пишутся через PostgreSQL COPY с явными id (внешние ключи считаются без чтения из БД), затем
+ * сдвигаются последовательности, пересчитывается task_counters и выполняется ANALYZE.
+ * Данные детерминированы: одинаковые seed и объемы дают одинаковые таблицы.
+ *
+ * Распределения приближены к реальным: пользователей и заданий больше в последние месяцы,
+ * популярность категорий по закону Ципфа, задания создает в основном активное меньшинство,
+ * статус задания зависит от того, прошла ли его дата.
+ */
+@Component
+@Profile("datagen")
+public class SyntheticDataGenerator implements CommandLineRunner {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+    
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    private static final String[] FIRST_NAMES = {
+        "Александр", "Дмитрий", "Максим", "Сергей", "Андрей", "Алексей", "Артем", "Илья", "Кирилл", "Михаил",
+        "Иван", "Никита", "Егор", "Павел", "Роман", "Анна", "Мария", "Елена", "Ольга", "Наталья",
+        "Екатерина", "Татьяна", "Ирина", "Светлана", "Юлия", "Анастасия", "Дарья", "Полина", "Ксения", "Виктория"
+    };
+    private static final String[] LAST_NAMES = {
+        "Иванов", "Смирнов", "Кузнецов", "Попов", "Васильев", "Петров", "Соколов", "Михайлов", "Новиков", "Федоров",
+        "Морозов", "Волков", "Алексеев", "Лебедев", "Семенов", "Егоров", "Павлов", "Козлов", "Степанов", "Николаев"
+    };
+    private static final String[][] CATEGORIES = {
+        {"Ремонт квартир", "Apartment repair"}, {"Уборка", "Cleaning"}, {"Курьерская доставка", "Courier delivery"},
+        {"Грузоперевозки", "Cargo transportation"}, {"Сантехника", "Plumbing"}, {"Электрика", "Electrical work"},
+        {"Сборка мебели", "Furniture assembly"}, {"Репетиторы", "Tutors"}, {"Компьютерная помощь", "Computer help"},
+        {"Красота и здоровье", "Beauty and health"}, {"Фото и видео", "Photo and video"}, {"Дизайн", "Design"},
+        {"Разработка сайтов", "Web development"}, {"Ремонт техники", "Appliance repair"}, {"Выгул собак", "Dog walking"},
+        {"Няни и сиделки", "Nannies and caregivers"}, {"Юридическая помощь", "Legal help"},
+        {"Организация праздников", "Event planning"}, {"Садовые работы", "Garden work"}, {"Автосервис", "Car service"},
+        {"Переводы", "Translation"}, {"Тексты и копирайтинг", "Copywriting"}, {"Серфинг", "Surfing"},
+        {"Аренда байка", "Bike Rental"}, {"Туризм", "Tourism"}
+    };
+    private static final String[] COLORS = {"#FF6B6B", "#4ECDC4", "#45B7D1", "#00B4DB", "#F7B731", "#A55EEA", "#26DE81"};
+    private static final String[] TASK_TITLES = {
+        "Нужна помощь: %s", "Срочно: %s", "%s на выходных", "Ищу исполнителя (%s)", "%s недорого",
+        "%s, оплата по факту", "Разовая задача: %s", "%s в центре города"
+    };
+    private static final String[] DESCRIPTION_SENTENCES = {
+        "Нужно сделать аккуратно и в срок.", "Все материалы есть, нужен только исполнитель.",
+        "Опыт обязателен, покажите примеры работ.", "Оплата наличными или переводом после выполнения.",
+        "Можно приступить уже завтра.", "Подробности обсудим в переписке.", "Адрес в пределах города, парковка есть.",
+        "Работа на несколько часов.", "Рассмотрю предложения с разной ценой.", "Желательно с отзывами."
+    };
+    
+    private final DataSource dataSource;
+    private final ConfigurableApplicationContext context;
+    private final int users;
+    private final int categories;
+    private final int tasks;
+    private final int verificationCodes;
+    private final double executorShare;
+    private final int maxCategoriesPerExecutor;
+    private final long seed;
+    private final boolean truncate;
+    private final boolean exitAfterLoad;
+    
+    private final LocalDateTime now = LocalDateTime.now().withNano(0);
+    
+    public SyntheticDataGenerator(DataSource dataSource,
+                                  ConfigurableApplicationContext context,
+                                  @Value("${datagen.users:100000}") int users,
+                                  @Value("${datagen.categories:25}") int categories,
+                                  @Value("${datagen.tasks:1000000}") int tasks,
+                                  @Value("${datagen.verification-codes:100000}") int verificationCodes,
+                                  @Value("${datagen.executor-share:0.25}") double executorShare,
+                                  @Value("${datagen.max-categories-per-executor:3}") int maxCategoriesPerExecutor,
+                                  @Value("${datagen.seed:42}") long seed,
+                                  @Value("${datagen.truncate:false}") boolean truncate,
+                                  @Value("${datagen.exit-after-load:true}") boolean exitAfterLoad) {
+        this.dataSource = dataSource;
+        this.context = context;
+        this.users = users;
+        this.categories = Math.max(1, categories);
+        this.tasks = tasks;
+        this.verificationCodes = verificationCodes;
+        this.executorShare = executorShare;
+        this.maxCategoriesPerExecutor = Math.max(1, maxCategoriesPerExecutor);
+        this.seed = seed;
+        this.truncate = truncate;
+        this.exitAfterLoad = exitAfterLoad;
+    }
+    
+    @Override
+    public void run(String... args) throws Exception {
+        long started = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                throw new IllegalStateException("Генератор данных работает только с PostgreSQL (COPY)");
+            }
+            connection.setAutoCommit(true);
+            PGConnection pg = connection.unwrap(PGConnection.class);
+            
+            if (truncate) {
+                execute(connection, "TRUNCATE phone_verification_codes, task_outbox, tasks, user_categories, users, categories RESTART IDENTITY CASCADE");
+            }
+            long userOffset = maxId(connection, "users");
+            long categoryOffset = maxId(connection, "categories");
+            long taskOffset = maxId(connection, "tasks");
+            
+            logger.info("Генерация: пользователей {}, категорий {}, заданий {}, кодов {} (seed {})",
+                    users, categories, tasks, verificationCodes, seed);
+            
+            double[] categoryWeights = zipfCumulative(categories, 1.1);
+            loadCategories(pg, categoryOffset);
+            loadUsers(pg, userOffset);
+            ExecutorIndex executors = loadUserCategories(pg, userOffset, categoryOffset, categoryWeights);
+            
+            // Триггер task_counters на каждой строке COPY превратил бы загрузку в миллионы UPDATE счетчика
+            execute(connection, "ALTER TABLE tasks DISABLE TRIGGER USER");
+            try {
+                loadTasks(pg, userOffset, categoryOffset, taskOffset, categoryWeights, executors);
+            } finally {
+                execute(connection, "ALTER TABLE tasks ENABLE TRIGGER USER");
+            }
+            loadVerificationCodes(pg, userOffset);
+            
+            for (String table : List.of("users", "categories", "tasks", "phone_verification_codes")) {
+                execute(connection, "SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), "
+                        + "(SELECT COALESCE(MAX(id), 0) + 1 FROM " + table + "), false)");
+            }
+            // Все значение в шард 0, остальные шарды обнуляются (сумма шардов - значение счетчика)
+            execute(connection, "UPDATE task_counters SET counter_value = CASE WHEN shard = 0 THEN "
+                    + "(SELECT COUNT(*) FROM tasks WHERE status = 'OPEN' AND executor_id IS NULL) ELSE 0 END "
+                    + "WHERE name = 'open_unassigned'");
+            logger.info("ANALYZE...");
+            execute(connection, "ANALYZE users, categories, user_categories, tasks, phone_verification_codes");
+        }
+        logger.info("Генерация завершена за {} с", (System.nanoTime() - started) / 1_000_000_000);
+        
+        if (exitAfterLoad) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+    
+    private void loadCategories(PGConnection pg, long offset) throws SQLException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (CopyWriter out = new CopyWriter(pg, "categories",
+                "id, name, english_name, description, icon, color, is_active, created_at, updated_at")) {
+            for (int i = 0; i < categories; i++) {
+                String[] names = CATEGORIES[i % CATEGORIES.length];
+                // Сверх списка - нумерованные варианты, имя категории уникально. При дозагрузке в непустую базу
+                // номер - id категории: он больше номеров прошлых загрузок и не совпадет с существующими именами
+                String suffix = offset > 0 ? " " + (offset + i + 1)
+                        : i < CATEGORIES.length ? "" : " " + (i / CATEGORIES.length + 1);
+                LocalDateTime created = pastTime(random, 3 * 365);
+                out.row(offset + i + 1, names[0] + suffix, names[1] + suffix,
+                        "Задания и исполнители в категории «" + names[0] + suffix + "»", null,
+                        COLORS[i % COLORS.length], random.nextInt(10) > 0, created, created);
+            }
+            out.finish();
+        }
+    }
+    
+    private void loadUsers(PGConnection pg, long offset) throws SQLException {
+        SplittableRandom random = new SplittableRandom(seed + 1);
+        try (CopyWriter out = new CopyWriter(pg, "users",
+                "id, name, email, password, phone, avatar, date_of_birth, created_at, updated_at")) {
+            for (int i = 1; i <= users; i++) {
+                long id = offset + i;
+                String phone = phoneOf(id);
+                String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                        + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                // Большинство регистрируется по телефону и получает временный email, как в UserService
+                String email = random.nextInt(100) < 85 ? "temp_" + phone + "@dobalito.local" : "user" + id + "@example.com";
+                String avatar = random.nextInt(100) < 30 ? avatarOf(random) : null;
+                LocalDate birthDate = random.nextInt(100) < 60
+                        ? now.toLocalDate().minusYears(18 + random.nextInt(47)).minusDays(random.nextInt(365)) : null;
+                LocalDateTime created = growingTime(random, 3 * 365);
+                LocalDateTime updated = created.plusMinutes(random.nextLong(Math.max(1, Duration.between(created, now).toMinutes())));
+                out.row(id, name, email, null, phone, avatar, birthDate, created, updated);
+            }
+            out.finish();
+        }
+    }
+    
+    /**
+     * Категории исполнителей (user_categories). Отдельным проходом: на одном соединении идет только один COPY.
+     * Возвращает исполнителей по категориям для назначения на задания.
+     */
+    private ExecutorIndex loadUserCategories(PGConnection pg, long userOffset, long categoryOffset,
+                                             double[] categoryWeights) throws SQLException {
+        SplittableRandom random = new SplittableRandom(seed + 4);
+        ExecutorIndex executors = new ExecutorIndex(categories);
+        try (CopyWriter out = new CopyWriter(pg, "user_categories", "user_id, category_id")) {
+            for (int i = 1; i <= users; i++) {
+                if (random.nextDouble() >= executorShare) {
+                    continue;
+                }
+                long id = userOffset + i;
+                for (int c = 0, count = 1 + random.nextInt(maxCategoriesPerExecutor); c < count; c++) {
+                    int category = pick(random, categoryWeights);
+                    if (executors.containsLast(category, id)) {
+                        continue;
+                    }
+                    executors.add(category, id);
+                    out.row(id, categoryOffset + category + 1);
+                }
+            }
+            out.finish();
+        }
+        return executors;
+    }
+    
+    private void loadTasks(PGConnection pg, long userOffset, long categoryOffset, long taskOffset,
+                           double[] categoryWeights, ExecutorIndex executors) throws SQLException {
+        SplittableRandom random = new SplittableRandom(seed + 2);
+        try (CopyWriter out = new CopyWriter(pg, "tasks",
+                "id, title, description, start_date, end_date, created_at, updated_at, creator_id, executor_id, category_id, status")) {
+            for (int i = 1; i <= tasks; i++) {
+                int category = pick(random, categoryWeights);
+                String categoryName = CATEGORIES[category % CATEGORIES.length][0];
+                String title = String.format(TASK_TITLES[random.nextInt(TASK_TITLES.length)], categoryName.toLowerCase());
+                StringBuilder description = new StringBuilder();
+                for (int s = 0, n = 1 + random.nextInt(4); s < n; s++) {
+                    description.append(s > 0 ? " " : "").append(DESCRIPTION_SENTENCES[random.nextInt(DESCRIPTION_SENTENCES.length)]);
+                }
+                
+                // Создают задания в основном активные (ранние) пользователи: ~20% авторов дают большую часть заданий
+                long creator = userOffset + 1 + (long) (users * Math.pow(random.nextDouble(), 3));
+                LocalDateTime created = growingTime(random, 2 * 365);
+                LocalDateTime start = created.plusHours(random.nextInt(14 * 24));
+                LocalDateTime end = start.plusHours(1 + random.nextInt(7 * 24));
+                
+                String status = statusOf(random, start);
+                Long executor = null;
+                if (!status.equals("OPEN") && !(status.equals("CANCELLED") && random.nextBoolean())) {
+                    executor = executors.pick(random, category, creator);
+                    if (executor == null) {
+                        status = "OPEN";
+                    }
+                }
+                LocalDateTime updated = status.equals("OPEN") ? created : start;
+                out.row(taskOffset + i, title, description, start, end, created, updated.isAfter(now) ? now : updated,
+                        creator, executor, categoryOffset + category + 1, status);
+            }
+            out.finish();
+        }
+    }
+    
+    private void loadVerificationCodes(PGConnection pg, long userOffset) throws SQLException {
+        SplittableRandom random = new SplittableRandom(seed + 3);
+        try (CopyWriter out = new CopyWriter(pg, "phone_verification_codes",
+                "phone, code, created_at, expires_at, is_used, attempts")) {
+            for (int i = 0; i < verificationCodes; i++) {
+                // Коды запрашивают и зарегистрированные, и новые номера
+                String phone = random.nextInt(100) < 80 && users > 0
+                        ? phoneOf(userOffset + 1 + random.nextInt(users))
+                        : "78" + String.format("%09d", random.nextInt(1_000_000_000));
+                LocalDateTime created = pastTime(random, 30);
+                out.row(phone, String.format("%06d", random.nextInt(1_000_000)), created,
+                        created.plusMinutes(10), random.nextInt(100) < 80, random.nextInt(4));
+            }
+            out.finish();
+        }
+    }
+    
+    /**
+     * Статус по дате: прошедшие задания в основном выполнены, будущие - открыты или в работе
+     */
+    private String statusOf(SplittableRandom random, LocalDateTime start) {
+        int roll = random.nextInt(100);
+        if (start.isBefore(now)) {
+            return roll < 70 ? "COMPLETED" : roll < 82 ? "CANCELLED" : roll < 90 ? "IN_PROGRESS" : "OPEN";
+        }
+        return roll < 65 ? "OPEN" : roll < 95 ? "IN_PROGRESS" : "CANCELLED";
+    }
+    
+    /**
+     * Момент за последние days дней, плотность растет к текущему моменту (рост сервиса)
+     */
+    private LocalDateTime growingTime(SplittableRandom random, int days) {
+        double age = 1 - Math.sqrt(random.nextDouble());
+        return now.minusMinutes((long) (age * days * 24 * 60));
+    }
+    
+    private LocalDateTime pastTime(SplittableRandom random, int days) {
+        return now.minusMinutes(random.nextLong((long) days * 24 * 60));
+    }
+    
+    /**
+     * Уникальный номер из id: 79 + 9 цифр
+     */
+    private static String phoneOf(long id) {
+        return "79" + String.format("%09d", id);
+    }
+    
+    /**
+     * Ссылка в формате UserService.getAvatarUrl: имя файла AvatarStorage - SHA-256 содержимого и .jpg
+     */
+    private static String avatarOf(SplittableRandom random) {
+        byte[] hash = new byte[32];
+        for (int i = 0; i < hash.length; i++) {
+            hash[i] = (byte) random.nextInt(256);
+        }
+        String hex = HexFormat.of().formatHex(hash);
+        return "/api/v1/users/avatar/" + hex + ".jpg";
+    }
+    
+    /**
+     * Накопленные веса распределения Ципфа: первый элемент самый популярный
+     */
+    private static double[] zipfCumulative(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+    
+    private static int pick(SplittableRandom random, double[] cumulative) {
+        double value = random.nextDouble();
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulative[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    private static long maxId(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+    
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+    
+    /**
+     * Исполнители по категориям: растущие массивы id, без коробок Long на миллионах записей
+     */
+    private static class ExecutorIndex {
+        
+        private final long[][] ids;
+        private final int[] sizes;
+        
+        ExecutorIndex(int categories) {
+            this.ids = new long[categories][16];
+            this.sizes = new int[categories];
+        }
+        
+        void add(int category, long userId) {
+            if (sizes[category] == ids[category].length) {
+                ids[category] = Arrays.copyOf(ids[category], sizes[category] * 2);
+            }
+            ids[category][sizes[category]++] = userId;
+        }
+        
+        /**
+         * Категории одного пользователя добавляются подряд, поэтому повтор виден по последнему элементу
+         */
+        boolean containsLast(int category, long userId) {
+            return sizes[category] > 0 && ids[category][sizes[category] - 1] == userId;
+        }
+        
+        /**
+         * Случайный исполнитель категории, не совпадающий с автором (null - подходящих нет)
+         */
+        Long pick(SplittableRandom random, int category, long creator) {
+            int size = sizes[category];
+            for (int attempt = 0; attempt < 3 && size > 0; attempt++) {
+                long candidate = ids[category][random.nextInt(size)];
+                if (candidate != creator) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Поток строк в COPY ... FROM STDIN (текстовый формат), отправка пачками
+     */
+    private static class CopyWriter implements AutoCloseable {
+        
+        private static final int FLUSH_BYTES = 1 << 20;
+        private static final int LOG_EVERY = 1_000_000;
+        
+        private final String table;
+        private final CopyIn copy;
+        private final StringBuilder buffer = new StringBuilder(FLUSH_BYTES + 4096);
+        private long rows;
+        
+        CopyWriter(PGConnection pg, String table, String columns) throws SQLException {
+            this.table = table;
+            this.copy = pg.getCopyAPI().copyIn("COPY " + table + " (" + columns + ") FROM STDIN");
+        }
+        
+        void row(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    buffer.append('\t');
+                }
+                append(values[i]);
+            }
+            buffer.append('\n');
+            if (++rows % LOG_EVERY == 0) {
+                logger.info("{}: {} строк", table, rows);
+            }
+            if (buffer.length() >= FLUSH_BYTES) {
+                flush();
+            }
+        }
+        
+        private void append(Object value) {
+            if (value == null) {
+                buffer.append("\\N");
+            } else if (value instanceof LocalDateTime time) {
+                buffer.append(TIMESTAMP.format(time));
+            } else if (value instanceof Boolean bool) {
+                buffer.append(bool ? 't' : 'f');
+            } else if (value instanceof Number || value instanceof LocalDate) {
+                buffer.append(value);
+            } else {
+                CharSequence text = value instanceof CharSequence chars ? chars : value.toString();
+                for (int i = 0; i < text.length(); i++) {
+                    char c = text.charAt(i);
+                    switch (c) {
+                        case '\\' -> buffer.append("\\\\");
+                        case '\t' -> buffer.append("\\t");
+                        case '\n' -> buffer.append("\\n");
+                        case '\r' -> buffer.append("\\r");
+                        default -> buffer.append(c);
+                    }
+                }
+            }
+        }
+        
+        private void flush() throws SQLException {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copy.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+        
+        /**
+         * Завершить COPY - строки становятся видны
+         */
+        void finish() throws SQLException {
+            flush();
+            copy.endCopy();
+            logger.info("{}: загружено {} строк", table, rows);
+        }
+        
+        /**
+         * Без finish() (ошибка генерации) COPY отменяется целиком
+         */
+        @Override
+        public void close() throws SQLException {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+    }
+}
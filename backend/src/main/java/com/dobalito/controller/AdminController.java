@@ -1,7 +1,8 @@
 package com.dobalito.controller;
 
-import com.dobalito.service.CategoryService;
-import com.dobalito.service.UserService;
+import com.dobalito.dto.SystemStatsDto;
+import com.dobalito.service.AdminStatsService;
+import com.dobalito.service.PrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -14,30 +15,26 @@ import java.util.Map;
 public class AdminController {
     
     @Autowired
-    private CategoryService categoryService;
+    private AdminStatsService adminStatsService;
     
     @Autowired
-    private UserService userService;
+    private PrincipalCache principalCache;
     
     /**
-     * Получить статистику системы
+     * Получить статистику системы (агрегаты из БД, кешируются на admin.stats.cache-ttl)
      */
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getSystemStats() {
-        long totalUsers = userService.getAllUsers().size();
-        long totalCategories = categoryService.getAllCategories().size();
-        long activeCategories = categoryService.getActiveCategories().size();
-        long usersWithAvatars = userService.getAllUsers().stream()
-            .filter(user -> user.getAvatar() != null && !user.getAvatar().isEmpty())
-            .count();
-        
+    public ResponseEntity<SystemStatsDto> getSystemStats() {
+        return ResponseEntity.ok(adminStatsService.getSystemStats());
+    }
+    
+    /**
+     * Получить статистику кешей (попадания/промахи)
+     */
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
         return ResponseEntity.ok(Map.of(
-            "totalUsers", totalUsers,
-            "totalCategories", totalCategories,
-            "activeCategories", activeCategories,
-            "inactiveCategories", totalCategories - activeCategories,
-            "usersWithAvatars", usersWithAvatars,
-            "usersWithoutAvatars", totalUsers - usersWithAvatars,
+            "principalCache", principalCache.getStats(),
             "timestamp", System.currentTimeMillis()
         ));
     }
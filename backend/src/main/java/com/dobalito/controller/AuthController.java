@@ -2,6 +2,7 @@ package com.dobalito.controller;
 
 import com.dobalito.config.JwtUtil;
 import com.dobalito.config.PhoneAuthenticationToken;
+import com.dobalito.entity.PhoneVerificationCode;
 import com.dobalito.entity.User;
 import com.dobalito.service.UserService;
 import com.dobalito.service.PhoneVerificationService;
@@ -438,6 +439,14 @@ public class AuthController {
             // Генерируем код верификации
             var verificationCode = phoneVerificationService.generateVerificationCode(normalizedPhone);
             
+            // Код уже сохранен - SMS уходит в фоне, ответ не ждет провайдера
+            if (!smsService.sendVerificationCode(normalizedPhone, verificationCode.getCode())) {
+                return ResponseEntity.status(503).body(Map.of(
+                    "success", false,
+                    "message", "SMS сервис перегружен, попробуйте позже"
+                ));
+            }
+            
             // Для тестирования возвращаем код в ответе
             logger.info("=== ТЕСТОВЫЙ РЕЖИМ ===");
             logger.info("Номер телефона: {}", normalizedPhone);
@@ -617,7 +626,7 @@ public class AuthController {
                 var activeCode = phoneVerificationService.getActiveCode(normalizedPhone);
                 if (activeCode.isPresent()) {
                     response.put("expiresAt", activeCode.get().getExpiresAt());
-                    response.put("attemptsLeft", 3 - activeCode.get().getAttempts());
+                    response.put("attemptsLeft", PhoneVerificationCode.MAX_ATTEMPTS - activeCode.get().getAttempts());
                 }
             }
             
@@ -5,16 +5,17 @@ import com.dobalito.dto.CategoryResponse;
 import com.dobalito.entity.Category;
 import com.dobalito.exception.ResourceNotFoundException;
 import com.dobalito.exception.ResourceAlreadyExistsException;
+import com.dobalito.service.CategoryCatalog;
 import com.dobalito.service.CategoryService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/v1/categories")
@@ -30,11 +31,7 @@ public class CategoryController {
     @GetMapping
     public ResponseEntity<List<CategoryResponse>> getAllCategories(
             @RequestParam(value = "lang", defaultValue = "ru") String language) {
-        List<Category> categories = categoryService.getAllCategories();
-        List<CategoryResponse> responses = categories.stream()
-            .map(category -> CategoryResponse.from(category, language))
-            .collect(Collectors.toList());
-        return ResponseEntity.ok(responses);
+        return catalogResponse(categoryService.getCategoryView(false, language));
     }
     
     /**
@@ -43,11 +40,18 @@ public class CategoryController {
     @GetMapping("/active")
     public ResponseEntity<List<CategoryResponse>> getActiveCategories(
             @RequestParam(value = "lang", defaultValue = "ru") String language) {
-        List<Category> categories = categoryService.getActiveCategories();
-        List<CategoryResponse> responses = categories.stream()
-            .map(category -> CategoryResponse.from(category, language))
-            .collect(Collectors.toList());
-        return ResponseEntity.ok(responses);
+        return catalogResponse(categoryService.getCategoryView(true, language));
+    }
+    
+    /**
+     * Ответ со списком из справочника категорий.
+     * ETag меняется только при изменении категорий, на If-None-Match с тем же ETag Spring отвечает 304 без тела.
+     */
+    private ResponseEntity<List<CategoryResponse>> catalogResponse(CategoryCatalog.View view) {
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.noCache())
+            .eTag(view.getEtag())
+            .body(view.getItems());
     }
     
     /**
@@ -150,8 +154,10 @@ public class CategoryController {
      * Поиск категорий
      */
     @GetMapping("/search")
-    public ResponseEntity<List<Category>> searchCategories(@RequestParam String q) {
-        List<Category> categories = categoryService.searchCategories(q);
+    public ResponseEntity<List<Category>> searchCategories(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        List<Category> categories = categoryService.searchCategories(q, limit);
         return ResponseEntity.ok(categories);
     }
     
@@ -159,8 +165,10 @@ public class CategoryController {
      * Поиск активных категорий
      */
     @GetMapping("/search/active")
-    public ResponseEntity<List<Category>> searchActiveCategories(@RequestParam String q) {
-        List<Category> categories = categoryService.searchActiveCategories(q);
+    public ResponseEntity<List<Category>> searchActiveCategories(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        List<Category> categories = categoryService.searchActiveCategories(q, limit);
         return ResponseEntity.ok(categories);
     }
     
@@ -1,9 +1,14 @@
 package com.dobalito.controller;
 
 import com.dobalito.dto.ApiResponse;
+import com.dobalito.dto.CursorPage;
 import com.dobalito.dto.TaskDto;
+import com.dobalito.dto.TaskListItem;
+import com.dobalito.dto.TaskStatsDto;
 import com.dobalito.entity.Task;
 import com.dobalito.entity.TaskStatus;
+import com.dobalito.service.NdjsonExportService;
+import com.dobalito.service.TaskEventBroadcaster;
 import com.dobalito.service.TaskService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,10 +16,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -26,9 +35,36 @@ import java.util.Optional;
 @CrossOrigin(origins = "*")
 public class TaskController {
     
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    
+    private static final int MAX_PAGE_SIZE = 100;
+    
     @Autowired
     private TaskService taskService;
     
+    @Autowired
+    private NdjsonExportService ndjsonExportService;
+    
+    @Autowired
+    private TaskEventBroadcaster taskEventBroadcaster;
+    
+    // Page request for list endpoints: newest first, size limited to MAX_PAGE_SIZE
+    private Pageable listPage(int page, int size) {
+        return PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+    }
+    
+    // Paginated list response in the same format as /open and /my/open
+    private ResponseEntity<Map<String, Object>> pageResponse(Page<TaskListItem> tasks) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("tasks", tasks.getContent());
+        response.put("totalElements", tasks.getTotalElements());
+        response.put("totalPages", tasks.getTotalPages());
+        response.put("currentPage", tasks.getNumber());
+        response.put("size", tasks.getSize());
+        return ResponseEntity.ok(response);
+    }
+    
     // Get current user ID from authentication
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -87,18 +123,35 @@ public class TaskController {
     }
     
     // Get all open tasks (for executors)
+    // mode=offset - classic page/size pagination, mode=cursor - keyset pagination by nextCursor (infinite scroll)
     @GetMapping("/open")
     public ResponseEntity<?> getOpenTasks(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "offset") String mode,
+            @RequestParam(required = false) String cursor) {
         try {
+            if ("cursor".equalsIgnoreCase(mode)) {
+                int limit = Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE);
+                CursorPage<TaskListItem> tasks = taskService.getOpenTasksAfterCursor(cursor, limit);
+                
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("tasks", tasks.getItems());
+                response.put("nextCursor", tasks.getNextCursor());
+                response.put("hasNext", tasks.hasNext());
+                response.put("size", limit);
+                
+                return ResponseEntity.ok(response);
+            }
+            
             Sort sort = sortDir.equalsIgnoreCase("desc") ? 
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
             Pageable pageable = PageRequest.of(page, size, sort);
             
-            Page<Task> tasks = taskService.getOpenTasksWithPagination(pageable);
+            Page<TaskListItem> tasks = taskService.getOpenTasksWithPagination(pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -117,12 +170,64 @@ public class TaskController {
         }
     }
     
-    // Get my tasks (created by current user as author) - simplified version
+    // Live feed of task events (Server-Sent Events) instead of polling /open:
+    // TASK_CREATED, TASK_ASSIGNED, TASK_STATUS_CHANGED, TASK_DELETED; optional repeatable categoryId filter.
+    // On reconnect EventSource sends Last-Event-ID and missed events are replayed; RESYNC means reload the list
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamTaskEvents(
+            @RequestParam(required = false) List<Long> categoryId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return taskEventBroadcaster.subscribe(categoryId, lastEventId)
+                .map(emitter -> ResponseEntity.ok()
+                        .header("X-Accel-Buffering", "no") // nginx не буферизует поток
+                        .body(emitter))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header("Retry-After", "30")
+                        .build());
+    }
+    
+    // Full-text search over task title and description, best matches first
+    // Optional status/categoryId filters; keyset pagination - pass nextCursor from the previous response as cursor
+    @GetMapping("/search")
+    public ResponseEntity<?> searchTasks(
+            @RequestParam String q,
+            @RequestParam(required = false) TaskStatus status,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
+        try {
+            int limit = Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE);
+            CursorPage<TaskListItem> tasks = taskService.searchTasks(q, status, categoryId, cursor, limit);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("tasks", tasks.getItems());
+            response.put("nextCursor", tasks.getNextCursor());
+            response.put("hasNext", tasks.hasNext());
+            response.put("size", limit);
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Ошибка при поиске заданий: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    // Get my tasks (created by current user as author)
+    // page - paginated response, without it - full list (legacy); format=ndjson is handled by exportMyTasks
     @GetMapping("/my")
-    public ResponseEntity<?> getMyTasks() {
+    public ResponseEntity<?> getMyTasks(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "20") int size) {
         try {
             Long userId = getCurrentUserId();
-            List<Task> tasks = taskService.getTasksByCreator(userId);
+            if (page != null) {
+                return pageResponse(taskService.getTasksByCreator(userId, listPage(page, size)));
+            }
+            
+            List<TaskListItem> tasks = taskService.getTasksByCreator(userId);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -138,6 +243,13 @@ public class TaskController {
         }
     }
     
+    // Export my tasks as NDJSON (one task per line, streamed from a database cursor)
+    @GetMapping(value = "/my", params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> exportMyTasks() {
+        Long userId = getCurrentUserId();
+        return ndjsonExportService.stream(() -> taskService.streamTasksByCreator(userId));
+    }
+    
     // Get my open tasks (created by current user with status OPEN + IN_PROGRESS) with pagination
     @GetMapping("/my/open")
     public ResponseEntity<?> getMyOpenTasks(
@@ -151,7 +263,7 @@ public class TaskController {
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
             Pageable pageable = PageRequest.of(page, size, sort);
             
-            Page<Task> tasks = taskService.getOpenTasksByCreatorWithPagination(userId, pageable);
+            Page<TaskListItem> tasks = taskService.getOpenTasksByCreatorWithPagination(userId, pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -183,7 +295,7 @@ public class TaskController {
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
             Pageable pageable = PageRequest.of(page, size, sort);
             
-            Page<Task> tasks = taskService.getClosedTasksByCreatorWithPagination(userId, pageable);
+            Page<TaskListItem> tasks = taskService.getClosedTasksByCreatorWithPagination(userId, pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -216,7 +328,7 @@ public class TaskController {
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
             Pageable pageable = PageRequest.of(page, size, sort);
             
-            Page<Task> tasks = taskService.getTasksByCreatorAndStatusWithPagination(userId, status, pageable);
+            Page<TaskListItem> tasks = taskService.getTasksByCreatorAndStatusWithPagination(userId, status, pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -248,7 +360,7 @@ public class TaskController {
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
             Pageable pageable = PageRequest.of(page, size, sort);
             
-            Page<Task> tasks = taskService.getTasksByExecutorWithPagination(userId, pageable);
+            Page<TaskListItem> tasks = taskService.getTasksByExecutorWithPagination(userId, pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -269,9 +381,16 @@ public class TaskController {
     
     // Get tasks by status
     @GetMapping("/status/{status}")
-    public ResponseEntity<?> getTasksByStatus(@PathVariable TaskStatus status) {
+    public ResponseEntity<?> getTasksByStatus(
+            @PathVariable TaskStatus status,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            List<Task> tasks = taskService.getTasksByStatus(status);
+            if (page != null) {
+                return pageResponse(taskService.getTasksByStatus(status, listPage(page, size)));
+            }
+            
+            List<TaskListItem> tasks = taskService.getTasksByStatus(status);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -287,11 +406,24 @@ public class TaskController {
         }
     }
     
+    // Export tasks by status as NDJSON
+    @GetMapping(value = "/status/{status}", params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> exportTasksByStatus(@PathVariable TaskStatus status) {
+        return ndjsonExportService.stream(() -> taskService.streamTasksByStatus(status));
+    }
+    
     // Get tasks by category
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<?> getTasksByCategory(@PathVariable Long categoryId) {
+    public ResponseEntity<?> getTasksByCategory(
+            @PathVariable Long categoryId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            List<Task> tasks = taskService.getTasksByCategory(categoryId);
+            if (page != null) {
+                return pageResponse(taskService.getTasksByCategory(categoryId, listPage(page, size)));
+            }
+            
+            List<TaskListItem> tasks = taskService.getTasksByCategory(categoryId);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -307,6 +439,12 @@ public class TaskController {
         }
     }
     
+    // Export tasks by category as NDJSON
+    @GetMapping(value = "/category/{categoryId}", params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> exportTasksByCategory(@PathVariable Long categoryId) {
+        return ndjsonExportService.stream(() -> taskService.streamTasksByCategory(categoryId));
+    }
+    
     // Update task
     @PutMapping("/{id}")
     public ResponseEntity<ApiResponse<Task>> updateTask(@PathVariable Long id, @Valid @RequestBody TaskDto taskDto) {
@@ -407,12 +545,7 @@ public class TaskController {
         try {
             Long userId = getCurrentUserId();
             
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("openTasks", taskService.countTasksByCreatorAndStatus(userId, TaskStatus.OPEN));
-            stats.put("inProgressTasks", taskService.countTasksByCreatorAndStatus(userId, TaskStatus.IN_PROGRESS));
-            stats.put("completedTasks", taskService.countTasksByCreatorAndStatus(userId, TaskStatus.COMPLETED));
-            stats.put("cancelledTasks", taskService.countTasksByCreatorAndStatus(userId, TaskStatus.CANCELLED));
-            stats.put("totalOpenTasks", taskService.countOpenTasks());
+            TaskStatsDto stats = taskService.getTaskStats(userId);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
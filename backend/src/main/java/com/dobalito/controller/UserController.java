@@ -1,18 +1,29 @@
 package com.dobalito.controller;
 
 import com.dobalito.entity.User;
+import com.dobalito.exception.PayloadTooLargeException;
+import com.dobalito.service.AvatarStorage;
+import com.dobalito.service.FileResponseWriter;
+import com.dobalito.service.NdjsonExportService;
+import com.dobalito.service.StoredFile;
 import com.dobalito.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.nio.file.Path;
+import java.net.URI;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -22,18 +33,63 @@ import java.util.Optional;
 @CrossOrigin(origins = "*")
 public class UserController {
     
+    private static final int MAX_PAGE_SIZE = 100;
+    
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private NdjsonExportService ndjsonExportService;
+    
+    @Autowired
+    private AvatarStorage avatarStorage;
+    
+    @Autowired
+    private FileResponseWriter fileResponseWriter;
+    
+    /**
+     * Параметры страницы для списков: размер ограничен MAX_PAGE_SIZE.
+     * Без параметра page списки возвращаются целиком (как раньше), format=ndjson обрабатывают методы export*.
+     */
+    private Pageable listPage(int page, int size) {
+        return PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+    }
+    
+    /**
+     * Ответ со страницей пользователей
+     */
+    private ResponseEntity<Map<String, Object>> pageResponse(Page<User> users) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("users", users.getContent());
+        response.put("totalElements", users.getTotalElements());
+        response.put("totalPages", users.getTotalPages());
+        response.put("currentPage", users.getNumber());
+        response.put("size", users.getSize());
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * Получить всех пользователей
      */
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
+    public ResponseEntity<?> getAllUsers(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "20") int size) {
+        if (page != null) {
+            return pageResponse(userService.getAllUsers(listPage(page, size)));
+        }
         List<User> users = userService.getAllUsers();
         return ResponseEntity.ok(users);
     }
     
+    /**
+     * Выгрузить всех пользователей в NDJSON
+     */
+    @GetMapping(params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> exportAllUsers() {
+        return ndjsonExportService.stream(() -> userService.streamAllUsers());
+    }
+    
     /**
      * Получить пользователя по ID
      */
@@ -86,15 +142,59 @@ public class UserController {
      * Поиск пользователей
      */
     @GetMapping("/search")
-    public ResponseEntity<List<User>> searchUsers(@RequestParam String q) {
-        List<User> users = userService.searchUsers(q);
+    public ResponseEntity<?> searchUsers(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Integer limit) {
+        if (page != null) {
+            return pageResponse(userService.searchUsers(q, listPage(page, size)));
+        }
+        // Без page - нечеткий поиск (автодополнение): ранжированный и ограниченный limit
+        List<User> users = userService.searchUsers(q, limit);
         return ResponseEntity.ok(users);
     }
     
     /**
-     * Загрузить аватарку
+     * Выгрузить результаты поиска пользователей в NDJSON
+     */
+    @GetMapping(value = "/search", params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> exportSearchUsers(@RequestParam String q) {
+        return ndjsonExportService.stream(() -> userService.streamSearchUsers(q));
+    }
+    
+    /**
+     * Загрузить аватарку телом запроса: Content-Type image/jpeg, image/png, image/gif или image/bmp.
+     * Тело читается потоково, без multipart разбора и временных файлов.
      */
-    @PostMapping("/{id}/avatar")
+    @PostMapping(value = "/{id}/avatar", consumes = {"image/jpeg", "image/png", "image/gif", "image/bmp"})
+    public ResponseEntity<?> uploadAvatarBody(@PathVariable Long id, HttpServletRequest request) {
+        try {
+            String avatarUrl = userService.uploadAvatar(id, request.getInputStream(),
+                request.getContentLengthLong(), request.getContentType());
+            return ResponseEntity.ok(Map.of(
+                "message", "Аватарка успешно загружена",
+                "avatarUrl", avatarUrl
+            ));
+        } catch (PayloadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+                "error", e.getMessage()
+            ));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Ошибка при загрузке файла: " + e.getMessage()
+            ));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", e.getMessage()
+            ));
+        }
+    }
+    
+    /**
+     * Загрузить аватарку формой multipart/form-data (поле file)
+     */
+    @PostMapping(value = "/{id}/avatar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> uploadAvatar(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
         try {
             String avatarUrl = userService.uploadAvatar(id, file);
@@ -127,61 +227,41 @@ public class UserController {
     }
     
     /**
-     * Получить аватарку по имени файла
+     * Получить аватарку по имени файла (size - нужный размер в пикселях, например 64 для списков).
+     * Имя файла - хеш содержимого, поэтому ответ кешируется как неизменяемый.
      */
     @GetMapping("/avatar/{filename}")
-    public ResponseEntity<Resource> getAvatar(@PathVariable String filename) {
+    public void getAvatar(
+            @PathVariable String filename,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Optional<URI> redirect;
+        Optional<StoredFile> file;
         try {
-            Path filePath = userService.getAvatarPath(filename);
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (resource.exists() && resource.isReadable()) {
-                // Определяем Content-Type по расширению файла
-                MediaType contentType = getContentTypeFromFilename(filename);
-                
-                return ResponseEntity.ok()
-                    .contentType(contentType)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .header(HttpHeaders.CACHE_CONTROL, "public, max-age=3600") // Кеширование на 1 час
-                    .body(resource);
-            } else {
-                // Логируем отсутствие файла для диагностики
-                System.out.println("Avatar file not found: " + filePath);
-                return ResponseEntity.notFound().build();
-            }
+            // S3 хранилище: браузер читает файл напрямую по подписанной ссылке, минуя сервер приложения
+            redirect = avatarStorage.findRedirect(filename, size);
+            file = redirect.isPresent() ? Optional.empty() : avatarStorage.find(filename, size);
         } catch (IllegalArgumentException e) {
             // Некорректное имя файла
-            System.out.println("Invalid filename: " + filename + ", error: " + e.getMessage());
-            return ResponseEntity.badRequest().build();
-        } catch (Exception e) {
-            // Другие ошибки
-            System.out.println("Error serving avatar: " + filename + ", error: " + e.getMessage());
-            return ResponseEntity.notFound().build();
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
         }
-    }
-    
-    /**
-     * Определяет Content-Type по расширению файла
-     */
-    private MediaType getContentTypeFromFilename(String filename) {
-        if (filename == null) {
-            return MediaType.APPLICATION_OCTET_STREAM;
+        
+        if (redirect.isPresent()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL,
+                "public, max-age=" + avatarStorage.getRedirectMaxAge().toSeconds());
+            response.setStatus(HttpServletResponse.SC_FOUND);
+            response.setHeader(HttpHeaders.LOCATION, redirect.get().toString());
+            return;
         }
         
-        String extension = filename.toLowerCase();
-        if (extension.endsWith(".png")) {
-            return MediaType.IMAGE_PNG;
-        } else if (extension.endsWith(".jpg") || extension.endsWith(".jpeg")) {
-            return MediaType.IMAGE_JPEG;
-        } else if (extension.endsWith(".gif")) {
-            return MediaType.IMAGE_GIF;
-        } else if (extension.endsWith(".webp")) {
-            return MediaType.parseMediaType("image/webp");
-        } else if (extension.endsWith(".svg")) {
-            return MediaType.parseMediaType("image/svg+xml");
-        } else {
-            return MediaType.APPLICATION_OCTET_STREAM;
+        if (file.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        
+        fileResponseWriter.write(file.get(), AvatarStorage.CACHE_CONTROL, request, response);
     }
     
     /**
@@ -216,20 +296,47 @@ public class UserController {
      * Получить всех исполнителей (пользователей)
      */
     @GetMapping("/executors")
-    public ResponseEntity<List<User>> getExecutors() {
+    public ResponseEntity<?> getExecutors(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "20") int size) {
+        if (page != null) {
+            return pageResponse(userService.getAllExecutors(listPage(page, size)));
+        }
         List<User> users = userService.getAllExecutors();
         return ResponseEntity.ok(users);
     }
     
+    /**
+     * Выгрузить всех исполнителей в NDJSON
+     */
+    @GetMapping(value = "/executors", params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> exportExecutors() {
+        return ndjsonExportService.stream(() -> userService.streamAllUsers());
+    }
+    
     /**
      * Получить пользователей по категории
      */
     @GetMapping("/by-category/{categoryId}")
-    public ResponseEntity<List<User>> getUsersByCategory(@PathVariable Long categoryId) {
+    public ResponseEntity<?> getUsersByCategory(
+            @PathVariable Long categoryId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "20") int size) {
+        if (page != null) {
+            return pageResponse(userService.getUsersByCategory(categoryId, listPage(page, size)));
+        }
         List<User> users = userService.getUsersByCategory(categoryId);
         return ResponseEntity.ok(users);
     }
     
+    /**
+     * Выгрузить пользователей категории в NDJSON
+     */
+    @GetMapping(value = "/by-category/{categoryId}", params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> exportUsersByCategory(@PathVariable Long categoryId) {
+        return ndjsonExportService.stream(() -> userService.streamUsersByCategory(categoryId));
+    }
+    
     /**
      * Получить пользователей по названию категории
      */
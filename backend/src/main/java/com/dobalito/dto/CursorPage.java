@@ -0,0 +1,31 @@
+package com.dobalito.dto;
+
+import java.util.List;
+
+/**
+ * Страница результатов при курсорной (keyset) пагинации.
+ * В отличие от Page не содержит общего количества элементов - COUNT(*) не выполняется.
+ * @param <T> тип элементов страницы
+ */
+public class CursorPage<T> {
+    
+    private final List<T> items;
+    private final String nextCursor;
+    
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<T> getItems() {
+        return items;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
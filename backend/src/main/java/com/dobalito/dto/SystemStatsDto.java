@@ -0,0 +1,60 @@
+package com.dobalito.dto;
+
+/**
+ * Статистика системы для /api/v1/admin/stats.
+ * Плоские поля пользователей и категорий - в прежнем формате ответа, tasks - задания по статусам.
+ */
+public class SystemStatsDto {
+    
+    private final long totalUsers;
+    private final long usersWithAvatars;
+    private final long totalCategories;
+    private final long activeCategories;
+    private final TaskStatusCounts tasks;
+    private final long timestamp;
+    
+    public SystemStatsDto(long totalUsers, long usersWithAvatars, long totalCategories, long activeCategories,
+                          TaskStatusCounts tasks, long timestamp) {
+        this.totalUsers = totalUsers;
+        this.usersWithAvatars = usersWithAvatars;
+        this.totalCategories = totalCategories;
+        this.activeCategories = activeCategories;
+        this.tasks = tasks;
+        this.timestamp = timestamp;
+    }
+    
+    public long getTotalUsers() {
+        return totalUsers;
+    }
+    
+    public long getUsersWithAvatars() {
+        return usersWithAvatars;
+    }
+    
+    public long getUsersWithoutAvatars() {
+        return totalUsers - usersWithAvatars;
+    }
+    
+    public long getTotalCategories() {
+        return totalCategories;
+    }
+    
+    public long getActiveCategories() {
+        return activeCategories;
+    }
+    
+    public long getInactiveCategories() {
+        return totalCategories - activeCategories;
+    }
+    
+    public TaskStatusCounts getTasks() {
+        return tasks;
+    }
+    
+    /**
+     * Время подсчета (мс): ответ может быть из кеша не старше admin.stats.cache-ttl
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,37 @@
+package com.dobalito.dto;
+
+import com.dobalito.entity.Task;
+import com.dobalito.entity.TaskStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие жизненного цикла задания для ленты исполнителей (GET /api/v1/tasks/stream).
+ * task - карточка в формате списков, чтобы клиент обновил ленту без запроса; у TASK_DELETED ее нет.
+ * id - номер записи в outbox, растет в порядке изменений задания; по нему получатели отбрасывают повторы.
+ */
+public record TaskEvent(
+        Long id,
+        Type type,
+        Long taskId,
+        Long categoryId,
+        TaskStatus status,
+        TaskListItem task,
+        LocalDateTime occurredAt) {
+    
+    public enum Type {
+        TASK_CREATED,
+        TASK_ASSIGNED,
+        TASK_STATUS_CHANGED,
+        TASK_DELETED
+    }
+    
+    public static TaskEvent of(Type type, Task task) {
+        TaskListItem item = type == Type.TASK_DELETED ? null : TaskListItem.from(task);
+        return new TaskEvent(null, type, task.getId(), task.getCategory().getId(), task.getStatus(), item, LocalDateTime.now());
+    }
+    
+    public TaskEvent withId(Long id) {
+        return new TaskEvent(id, type, taskId, categoryId, status, task, occurredAt);
+    }
+}
@@ -0,0 +1,83 @@
+package com.dobalito.dto;
+
+import com.dobalito.entity.Category;
+import com.dobalito.entity.Task;
+import com.dobalito.entity.TaskStatus;
+import com.dobalito.entity.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Облегченное представление задания для списков.
+ * Собирается JPQL constructor expression прямо из нужных колонок - без гидрации сущностей User/Category,
+ * их EAGER категорий и служебных полей (password и т.п.).
+ * Описание обрезается до DESCRIPTION_PREVIEW_LENGTH символов, полный текст отдает GET /api/v1/tasks/{id}.
+ */
+public record TaskListItem(
+        Long id,
+        String title,
+        String description,
+        LocalDateTime startDate,
+        LocalDateTime endDate,
+        TaskStatus status,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        UserRef creator,
+        UserRef executor,
+        CategoryRef category) {
+    
+    public static final int DESCRIPTION_PREVIEW_LENGTH = 500;
+    
+    /**
+     * Плоский конструктор для JPQL: связанные сущности приходят отдельными колонками из LEFT JOIN
+     */
+    public TaskListItem(Long id, String title, String description,
+                        LocalDateTime startDate, LocalDateTime endDate, TaskStatus status,
+                        LocalDateTime createdAt, LocalDateTime updatedAt,
+                        Long creatorId, String creatorName, String creatorAvatar,
+                        Long executorId, String executorName, String executorAvatar,
+                        Long categoryId, String categoryName, String categoryColor) {
+        this(id, title, description, startDate, endDate, status, createdAt, updatedAt,
+             UserRef.of(creatorId, creatorName, creatorAvatar),
+             UserRef.of(executorId, executorName, executorAvatar),
+             CategoryRef.of(categoryId, categoryName, categoryColor));
+    }
+    
+    /**
+     * Карточка из загруженной сущности (связи должны быть загружены, например через GRAPH_WITH_PARTICIPANTS)
+     */
+    public static TaskListItem from(Task task) {
+        String description = task.getDescription();
+        if (description != null && description.length() > DESCRIPTION_PREVIEW_LENGTH) {
+            description = description.substring(0, DESCRIPTION_PREVIEW_LENGTH);
+        }
+        User creator = task.getCreator();
+        User executor = task.getExecutor();
+        Category category = task.getCategory();
+        return new TaskListItem(task.getId(), task.getTitle(), description,
+                task.getStartDate(), task.getEndDate(), task.getStatus(), task.getCreatedAt(), task.getUpdatedAt(),
+                creator == null ? null : new UserRef(creator.getId(), creator.getName(), creator.getAvatar()),
+                executor == null ? null : new UserRef(executor.getId(), executor.getName(), executor.getAvatar()),
+                category == null ? null : new CategoryRef(category.getId(), category.getName(), category.getColor()));
+    }
+    
+    /**
+     * Автор или исполнитель задания
+     */
+    public record UserRef(Long id, String name, String avatar) {
+        
+        static UserRef of(Long id, String name, String avatar) {
+            return id == null ? null : new UserRef(id, name, avatar);
+        }
+    }
+    
+    /**
+     * Категория задания
+     */
+    public record CategoryRef(Long id, String name, String color) {
+        
+        static CategoryRef of(Long id, String name, String color) {
+            return id == null ? null : new CategoryRef(id, name, color);
+        }
+    }
+}
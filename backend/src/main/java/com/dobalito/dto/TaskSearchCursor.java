@@ -0,0 +1,58 @@
+package com.dobalito.dto;
+
+import com.dobalito.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Курсор полнотекстового поиска заданий: позиция (rank, id) последнего отданного результата.
+ * Результаты упорядочены по rank DESC, id DESC, клиенту курсор передается base64url-строкой.
+ */
+public class TaskSearchCursor {
+    
+    private static final String SEPARATOR = "|";
+    
+    private final float rank;
+    private final Long id;
+    
+    public TaskSearchCursor(float rank, Long id) {
+        this.rank = rank;
+        this.id = id;
+    }
+    
+    /**
+     * Кодирует курсор в непрозрачную строку
+     */
+    public String encode() {
+        // Float.toString/parseFloat восстанавливают значение без потерь - сравнение с rank в SQL точное
+        String raw = Float.toString(rank) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Декодирует курсор, полученный от клиента
+     */
+    public static TaskSearchCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = raw.lastIndexOf(SEPARATOR);
+            if (separatorIndex <= 0) {
+                throw new ValidationException("Некорректный курсор");
+            }
+            float rank = Float.parseFloat(raw.substring(0, separatorIndex));
+            Long id = Long.parseLong(raw.substring(separatorIndex + 1));
+            return new TaskSearchCursor(rank, id);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный курсор");
+        }
+    }
+    
+    public float getRank() {
+        return rank;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,53 @@
+package com.dobalito.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Статистика заданий пользователя для /api/v1/tasks/stats.
+ * Плоские поля openTasks/inProgressTasks/completedTasks/cancelledTasks - задания, созданные пользователем
+ * (совместимо с прежним форматом ответа), asExecutor - задания, где пользователь исполнитель.
+ */
+public class TaskStatsDto {
+    
+    private final TaskStatusCounts created;
+    private final TaskStatusCounts asExecutor;
+    private final long totalOpenTasks;
+    
+    public TaskStatsDto(TaskStatusCounts created, TaskStatusCounts asExecutor, long totalOpenTasks) {
+        this.created = created;
+        this.asExecutor = asExecutor;
+        this.totalOpenTasks = totalOpenTasks;
+    }
+    
+    public long getOpenTasks() {
+        return created.getOpen();
+    }
+    
+    public long getInProgressTasks() {
+        return created.getInProgress();
+    }
+    
+    public long getCompletedTasks() {
+        return created.getCompleted();
+    }
+    
+    public long getCancelledTasks() {
+        return created.getCancelled();
+    }
+    
+    /**
+     * Все открытые задания без исполнителя в системе
+     */
+    public long getTotalOpenTasks() {
+        return totalOpenTasks;
+    }
+    
+    @JsonIgnore
+    public TaskStatusCounts getCreated() {
+        return created;
+    }
+    
+    public TaskStatusCounts getAsExecutor() {
+        return asExecutor;
+    }
+}
@@ -0,0 +1,66 @@
+package com.dobalito.dto;
+
+import com.dobalito.entity.TaskStatus;
+
+import java.util.List;
+
+/**
+ * Количество заданий по статусам (результат одного GROUP BY запроса)
+ */
+public class TaskStatusCounts {
+    
+    private long open;
+    private long inProgress;
+    private long completed;
+    private long cancelled;
+    
+    public TaskStatusCounts() {}
+    
+    /**
+     * Собрать счетчики из строк вида [TaskStatus, Long]; отсутствующие статусы считаются нулем
+     */
+    public static TaskStatusCounts from(List<Object[]> rows) {
+        return from(rows, 1);
+    }
+    
+    /**
+     * Собрать счетчики из колонки countColumn строк вида [TaskStatus, Long...]
+     */
+    public static TaskStatusCounts from(List<Object[]> rows, int countColumn) {
+        TaskStatusCounts counts = new TaskStatusCounts();
+        for (Object[] row : rows) {
+            TaskStatus status = (TaskStatus) row[0];
+            long count = ((Number) row[countColumn]).longValue();
+            if (status == null) {
+                continue;
+            }
+            switch (status) {
+                case OPEN -> counts.open = count;
+                case IN_PROGRESS -> counts.inProgress = count;
+                case COMPLETED -> counts.completed = count;
+                case CANCELLED -> counts.cancelled = count;
+            }
+        }
+        return counts;
+    }
+    
+    public long getOpen() {
+        return open;
+    }
+    
+    public long getInProgress() {
+        return inProgress;
+    }
+    
+    public long getCompleted() {
+        return completed;
+    }
+    
+    public long getCancelled() {
+        return cancelled;
+    }
+    
+    public long getTotal() {
+        return open + inProgress + completed + cancelled;
+    }
+}
@@ -0,0 +1,29 @@
+package com.dobalito.dto;
+
+import com.dobalito.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Публичная карточка пользователя для выгрузок: без пароля, телефона и даты рождения.
+ * Категории должны быть загружены вместе с пользователем (JOIN FETCH), иначе каждая карточка - отдельный запрос.
+ */
+public record UserListItem(
+        Long id,
+        String name,
+        String avatar,
+        String email,
+        LocalDateTime createdAt,
+        List<TaskListItem.CategoryRef> categories) {
+    
+    public static UserListItem from(User user) {
+        List<TaskListItem.CategoryRef> categories = user.getCategories().stream()
+                .map(category -> new TaskListItem.CategoryRef(category.getId(), category.getName(), category.getColor()))
+                .sorted(Comparator.comparing(TaskListItem.CategoryRef::id))
+                .toList();
+        return new UserListItem(user.getId(), user.getName(), user.getAvatar(), user.getEmail(),
+                user.getCreatedAt(), categories);
+    }
+}
@@ -7,6 +7,11 @@ import java.time.LocalDateTime;
 @Table(name = "phone_verification_codes")
 public class PhoneVerificationCode {
     
+    /**
+     * Максимум попыток ввода кода
+     */
+    public static final int MAX_ATTEMPTS = 3;
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -110,7 +115,7 @@ public class PhoneVerificationCode {
     }
     
     public boolean isValid() {
-        return !isUsed && !isExpired() && attempts < 3; // Максимум 3 попытки
+        return !isUsed && !isExpired() && attempts < MAX_ATTEMPTS;
     }
     
     @Override
@@ -6,8 +6,19 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
 @Table(name = "tasks")
+@NamedEntityGraph(
+    name = Task.GRAPH_WITH_PARTICIPANTS,
+    attributeNodes = {
+        @NamedAttributeNode("creator"),
+        @NamedAttributeNode("executor"),
+        @NamedAttributeNode("category")
+    }
+)
 public class Task {
     
+    // Fetch plan для чтения заданий: автор, исполнитель и категория одним запросом через join
+    public static final String GRAPH_WITH_PARTICIPANTS = "Task.withParticipants";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -0,0 +1,65 @@
+package com.dobalito.entity;
+
+import com.dobalito.dto.TaskEvent;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Событие задания (transactional outbox).
+ * Пишется в транзакции изменения задания, relay каждого экземпляра читает его по своему курсору;
+ * удаляется по истечении tasks.outbox.retention.
+ */
+@Entity
+@Table(name = "task_outbox")
+public class TaskOutboxEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "task_id", nullable = false)
+    private Long taskId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 32)
+    private TaskEvent.Type eventType;
+    
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload; // TaskEvent в JSON
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public TaskOutboxEvent() {
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    public TaskOutboxEvent(Long taskId, TaskEvent.Type eventType, String payload) {
+        this();
+        this.taskId = taskId;
+        this.eventType = eventType;
+        this.payload = payload;
+    }
+    
+    // Getters
+    public Long getId() {
+        return id;
+    }
+    
+    public Long getTaskId() {
+        return taskId;
+    }
+    
+    public TaskEvent.Type getEventType() {
+        return eventType;
+    }
+    
+    public String getPayload() {
+        return payload;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
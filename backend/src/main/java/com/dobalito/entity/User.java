@@ -1,6 +1,7 @@
 package com.dobalito.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -38,7 +39,9 @@ public class User {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // EAGER коллекция: для списка пользователей категории догружаются пачками, а не запросом на каждого
     @ManyToMany(fetch = FetchType.EAGER)
+    @BatchSize(size = 50)
     @JoinTable(
         name = "user_categories",
         joinColumns = @JoinColumn(name = "user_id"),
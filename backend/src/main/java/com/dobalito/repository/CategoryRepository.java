@@ -58,6 +58,26 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
            "LOWER(c.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
     List<Category> findActiveByNameOrDescriptionContaining(@Param("searchTerm") String searchTerm);
     
+    /**
+     * Нечеткий поиск по имени, английскому имени и описанию через pg_trgm (индексы из V12).
+     * Совпадения в имени весят больше, чем в описании
+     */
+    @Query(value = "SELECT c.* FROM categories c " +
+                   "WHERE (:activeOnly = false OR c.is_active = true) " +
+                   "  AND (lower(c.name) LIKE :pattern OR lower(c.english_name) LIKE :pattern " +
+                   "       OR lower(c.description) LIKE :pattern " +
+                   "       OR :query <% lower(c.name) OR :query <% lower(c.english_name) " +
+                   "       OR :query <% lower(c.description)) " +
+                   "ORDER BY GREATEST(word_similarity(:query, lower(c.name)), " +
+                   "                  word_similarity(:query, lower(c.english_name)), " +
+                   "                  word_similarity(:query, coalesce(lower(c.description), '')) * 0.5) DESC, c.id " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<Category> searchByTrigram(@Param("query") String query,
+                                   @Param("pattern") String pattern,
+                                   @Param("activeOnly") boolean activeOnly,
+                                   @Param("limit") int limit);
+    
     /**
      * Найти категории по цвету
      */
@@ -68,5 +88,11 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
      */
     @Query("SELECT c FROM Category c WHERE c.icon IS NOT NULL AND c.icon != ''")
     List<Category> findCategoriesWithIcons();
+    
+    /**
+     * Всего категорий и активных категорий одним запросом: одна строка [Long, Long]
+     */
+    @Query("SELECT COUNT(c), SUM(CASE WHEN c.isActive = true THEN 1 ELSE 0 END) FROM Category c")
+    List<Object[]> countCategoriesAndActiveCategories();
 }
 
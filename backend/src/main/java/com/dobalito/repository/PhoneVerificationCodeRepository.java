@@ -2,12 +2,12 @@ package com.dobalito.repository;
 
 import com.dobalito.entity.PhoneVerificationCode;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,25 +16,42 @@ public interface PhoneVerificationCodeRepository extends JpaRepository<PhoneVeri
     /**
      * Найти активный код по номеру телефона
      */
-    @Query("SELECT pvc FROM PhoneVerificationCode pvc WHERE pvc.phone = :phone AND pvc.isUsed = false AND pvc.expiresAt > :now AND pvc.attempts < 3 ORDER BY pvc.createdAt DESC")
+    @Query("SELECT pvc FROM PhoneVerificationCode pvc WHERE pvc.phone = :phone AND pvc.isUsed = false AND pvc.expiresAt > :now AND pvc.attempts < " + PhoneVerificationCode.MAX_ATTEMPTS + " ORDER BY pvc.createdAt DESC")
     Optional<PhoneVerificationCode> findActiveCodeByPhone(@Param("phone") String phone, @Param("now") LocalDateTime now);
     
     /**
      * Найти код по номеру телефона и самому коду
      */
-    @Query("SELECT pvc FROM PhoneVerificationCode pvc WHERE pvc.phone = :phone AND pvc.code = :code AND pvc.isUsed = false AND pvc.expiresAt > :now AND pvc.attempts < 3")
+    @Query("SELECT pvc FROM PhoneVerificationCode pvc WHERE pvc.phone = :phone AND pvc.code = :code AND pvc.isUsed = false AND pvc.expiresAt > :now AND pvc.attempts < " + PhoneVerificationCode.MAX_ATTEMPTS)
     Optional<PhoneVerificationCode> findByPhoneAndCode(@Param("phone") String phone, @Param("code") String code, @Param("now") LocalDateTime now);
     
     /**
-     * Найти все коды для номера телефона (для очистки старых)
+     * Погасить все неиспользованные коды номера одним UPDATE
      */
-    List<PhoneVerificationCode> findByPhoneOrderByCreatedAtDesc(String phone);
+    @Modifying
+    @Query("UPDATE PhoneVerificationCode pvc SET pvc.isUsed = true WHERE pvc.phone = :phone AND pvc.isUsed = false")
+    int deactivateActiveCodes(@Param("phone") String phone);
+    
+    /**
+     * Пометить действующий код использованным. Возвращает 1, только если код подошел и еще не был использован
+     */
+    @Modifying
+    @Query("UPDATE PhoneVerificationCode pvc SET pvc.isUsed = true WHERE pvc.phone = :phone AND pvc.code = :code AND pvc.isUsed = false AND pvc.expiresAt > :now AND pvc.attempts < " + PhoneVerificationCode.MAX_ATTEMPTS)
+    int markUsed(@Param("phone") String phone, @Param("code") String code, @Param("now") LocalDateTime now);
+    
+    /**
+     * Увеличить счетчик попыток действующего кода номера
+     */
+    @Modifying
+    @Query("UPDATE PhoneVerificationCode pvc SET pvc.attempts = pvc.attempts + 1 WHERE pvc.phone = :phone AND pvc.isUsed = false AND pvc.expiresAt > :now AND pvc.attempts < " + PhoneVerificationCode.MAX_ATTEMPTS)
+    int incrementAttempts(@Param("phone") String phone, @Param("now") LocalDateTime now);
     
     /**
      * Удалить истекшие коды
      */
+    @Modifying
     @Query("DELETE FROM PhoneVerificationCode pvc WHERE pvc.expiresAt < :now")
-    void deleteExpiredCodes(@Param("now") LocalDateTime now);
+    int deleteExpiredCodes(@Param("now") LocalDateTime now);
     
     /**
      * Подсчитать количество попыток за последний час
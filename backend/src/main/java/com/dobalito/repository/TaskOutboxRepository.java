@@ -0,0 +1,69 @@
+package com.dobalito.repository;
+
+import com.dobalito.entity.TaskOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TaskOutboxRepository extends JpaRepository<TaskOutboxEvent, Long> {
+    
+    /**
+     * События после курсора relay в порядке id (диапазон по первичному ключу)
+     */
+    @Query("SELECT e FROM TaskOutboxEvent e WHERE e.id > :afterId ORDER BY e.id")
+    List<TaskOutboxEvent> findAfter(@Param("afterId") long afterId, Pageable limit);
+    
+    /**
+     * Id последнего события, 0 - outbox пуст. Начальная позиция курсора relay.
+     */
+    @Query("SELECT COALESCE(MAX(e.id), 0) FROM TaskOutboxEvent e")
+    long findMaxId();
+    
+    /**
+     * Есть ли событие не новее id: если да, события после него еще не удалены по сроку хранения
+     */
+    boolean existsByIdLessThanEqual(long id);
+    
+    /**
+     * Удалить события старше срока хранения, но не после maxId (наименьшего курсора постоянных получателей)
+     */
+    @Modifying
+    @Query("DELETE FROM TaskOutboxEvent e WHERE e.createdAt < :cutoff AND e.id <= :maxId")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("maxId") long maxId);
+    
+    /**
+     * Создать курсор постоянного получателя, если его еще нет
+     */
+    @Modifying
+    @Query(value = "INSERT INTO task_outbox_consumer (name, last_id) VALUES (:name, :lastId) ON CONFLICT (name) DO NOTHING",
+           nativeQuery = true)
+    int registerConsumer(@Param("name") String name, @Param("lastId") long lastId);
+    
+    /**
+     * Захватить курсор получателя до конца транзакции; empty - его сейчас обрабатывает другой экземпляр
+     */
+    @Query(value = "SELECT last_id FROM task_outbox_consumer WHERE name = :name FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<Long> claimConsumer(@Param("name") String name);
+    
+    /**
+     * Сдвинуть захваченный курсор получателя
+     */
+    @Modifying
+    @Query(value = "UPDATE task_outbox_consumer SET last_id = :lastId, updated_at = CURRENT_TIMESTAMP WHERE name = :name",
+           nativeQuery = true)
+    int advanceConsumer(@Param("name") String name, @Param("lastId") long lastId);
+    
+    /**
+     * Наименьший курсор постоянных получателей, null - получателей нет
+     */
+    @Query(value = "SELECT MIN(last_id) FROM task_outbox_consumer", nativeQuery = true)
+    Long findMinConsumerCursor();
+}
@@ -1,68 +1,229 @@
 package com.dobalito.repository;
 
+import com.dobalito.dto.TaskListItem;
 import com.dobalito.entity.Task;
 import com.dobalito.entity.TaskStatus;
 import com.dobalito.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TaskRepository extends JpaRepository<Task, Long> {
     
+    // Every entity read path below uses the Task.withParticipants graph (creator, executor, category in one join),
+    // so serializing tasks never lazy-loads associations one row at a time
+    
+    @Override
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
+    Optional<Task> findById(Long id);
+    
+    @Override
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
+    List<Task> findAll();
+    
+    @Override
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
+    Page<Task> findAll(Pageable pageable);
+    
+    // Projection for list views: only the columns TaskListItem needs, creator/executor/category via LEFT JOIN
+    String TASK_LIST_ITEM_SELECT = "SELECT new com.dobalito.dto.TaskListItem(" +
+           "t.id, t.title, SUBSTRING(t.description, 1, " + TaskListItem.DESCRIPTION_PREVIEW_LENGTH + "), " +
+           "t.startDate, t.endDate, t.status, t.createdAt, t.updatedAt, " +
+           "c.id, c.name, c.avatar, e.id, e.name, e.avatar, cat.id, cat.name, cat.color) " +
+           "FROM Task t LEFT JOIN t.creator c LEFT JOIN t.executor e LEFT JOIN t.category cat ";
+    
+    // Status is an inline literal, not a parameter: a generic plan could not match the partial idx_tasks_open_feed
+    String OPEN_FEED_WHERE = "WHERE t.status = com.dobalito.entity.TaskStatus.OPEN AND t.executor IS NULL ";
+    
+    // Rows fetched per round trip by streaming (export) queries
+    String STREAM_FETCH_SIZE = "500";
+    
     // Find tasks by creator
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     List<Task> findByCreatorOrderByCreatedAtDesc(User creator);
     
     // Find tasks by executor
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     List<Task> findByExecutorOrderByCreatedAtDesc(User executor);
     
     // Find tasks by status
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     List<Task> findByStatusOrderByCreatedAtDesc(TaskStatus status);
     
     // Find tasks by category
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     List<Task> findByCategoryIdOrderByCreatedAtDesc(Long categoryId);
     
     // Find open tasks (for executors to see)
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     List<Task> findByStatusAndExecutorIsNullOrderByCreatedAtDesc(TaskStatus status);
     
     // Find tasks by creator and status
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     List<Task> findByCreatorAndStatusOrderByCreatedAtDesc(User creator, TaskStatus status);
     
     // Find tasks by executor and status
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     List<Task> findByExecutorAndStatusOrderByCreatedAtDesc(User executor, TaskStatus status);
     
     // Find tasks with pagination
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     Page<Task> findByStatusOrderByCreatedAtDesc(TaskStatus status, Pageable pageable);
     
     // Find open tasks with pagination (with eager loading для избежания N+1)
-    @EntityGraph(attributePaths = {"creator", "category"})
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     Page<Task> findByStatusAndExecutorIsNullOrderByCreatedAtDesc(TaskStatus status, Pageable pageable);
     
+    // Open tasks feed as list items with pagination (sorting comes from the Pageable)
+    @Query(value = TASK_LIST_ITEM_SELECT + "WHERE t.status = :status AND t.executor IS NULL",
+           countQuery = "SELECT COUNT(t) FROM Task t WHERE t.status = :status AND t.executor IS NULL")
+    Page<TaskListItem> findOpenListItems(@Param("status") TaskStatus status, Pageable pageable);
+    
+    // First page of the open tasks feed for keyset pagination (no COUNT query, uses idx_tasks_open_feed)
+    @Query(TASK_LIST_ITEM_SELECT + OPEN_FEED_WHERE + "ORDER BY t.createdAt DESC, t.id DESC")
+    List<TaskListItem> findOpenFeedItemsFirstPage(Pageable pageable);
+    
+    // Next page of the open tasks feed as list items: seek past (createdAt, id) of the last seen task.
+    // The redundant createdAt <= bound is an index condition on idx_tasks_open_feed, so the scan starts at the cursor
+    // (Hibernate 6.3 can't compare a row value with parameters); the OR only filters rows with the same createdAt
+    @Query(TASK_LIST_ITEM_SELECT + OPEN_FEED_WHERE + "AND t.createdAt <= :createdAt " +
+           "AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.id < :id)) " +
+           "ORDER BY t.createdAt DESC, t.id DESC")
+    List<TaskListItem> findOpenFeedItemsAfter(@Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+    
+    // Tasks created by user as list items
+    @Query(TASK_LIST_ITEM_SELECT + "WHERE t.creator.id = :creatorId ORDER BY t.createdAt DESC")
+    List<TaskListItem> findListItemsByCreatorId(@Param("creatorId") Long creatorId);
+    
+    // Tasks created by user as list items with pagination
+    @Query(value = TASK_LIST_ITEM_SELECT + "WHERE t.creator.id = :creatorId ORDER BY t.createdAt DESC, t.id DESC",
+           countQuery = "SELECT COUNT(t) FROM Task t WHERE t.creator.id = :creatorId")
+    Page<TaskListItem> findListItemsByCreatorId(@Param("creatorId") Long creatorId, Pageable pageable);
+    
+    // Tasks created by user as a database cursor for NDJSON export (must be consumed inside a transaction)
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(TASK_LIST_ITEM_SELECT + "WHERE t.creator.id = :creatorId ORDER BY t.createdAt DESC, t.id DESC")
+    Stream<TaskListItem> streamListItemsByCreatorId(@Param("creatorId") Long creatorId);
+    
+    // Tasks created by user with given status as list items with pagination
+    @Query(value = TASK_LIST_ITEM_SELECT + "WHERE t.creator.id = :creatorId AND t.status = :status",
+           countQuery = "SELECT COUNT(t) FROM Task t WHERE t.creator.id = :creatorId AND t.status = :status")
+    Page<TaskListItem> findListItemsByCreatorIdAndStatus(@Param("creatorId") Long creatorId,
+                                                         @Param("status") TaskStatus status,
+                                                         Pageable pageable);
+    
+    // Tasks created by user with status in list as list items with pagination
+    @Query(value = TASK_LIST_ITEM_SELECT + "WHERE t.creator.id = :creatorId AND t.status IN :statuses",
+           countQuery = "SELECT COUNT(t) FROM Task t WHERE t.creator.id = :creatorId AND t.status IN :statuses")
+    Page<TaskListItem> findListItemsByCreatorIdAndStatusIn(@Param("creatorId") Long creatorId,
+                                                           @Param("statuses") List<TaskStatus> statuses,
+                                                           Pageable pageable);
+    
+    // Tasks assigned to executor as list items with pagination
+    @Query(value = TASK_LIST_ITEM_SELECT + "WHERE t.executor.id = :executorId",
+           countQuery = "SELECT COUNT(t) FROM Task t WHERE t.executor.id = :executorId")
+    Page<TaskListItem> findListItemsByExecutorId(@Param("executorId") Long executorId, Pageable pageable);
+    
+    // Tasks by status as list items
+    @Query(TASK_LIST_ITEM_SELECT + "WHERE t.status = :status ORDER BY t.createdAt DESC")
+    List<TaskListItem> findListItemsByStatus(@Param("status") TaskStatus status);
+    
+    // Tasks by status as list items with pagination
+    @Query(value = TASK_LIST_ITEM_SELECT + "WHERE t.status = :status ORDER BY t.createdAt DESC, t.id DESC",
+           countQuery = "SELECT COUNT(t) FROM Task t WHERE t.status = :status")
+    Page<TaskListItem> findListItemsByStatus(@Param("status") TaskStatus status, Pageable pageable);
+    
+    // Tasks by status as a database cursor for NDJSON export
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(TASK_LIST_ITEM_SELECT + "WHERE t.status = :status ORDER BY t.createdAt DESC, t.id DESC")
+    Stream<TaskListItem> streamListItemsByStatus(@Param("status") TaskStatus status);
+    
+    // Tasks by category as list items
+    @Query(TASK_LIST_ITEM_SELECT + "WHERE t.category.id = :categoryId ORDER BY t.createdAt DESC")
+    List<TaskListItem> findListItemsByCategoryId(@Param("categoryId") Long categoryId);
+    
+    // Tasks by category as list items with pagination
+    @Query(value = TASK_LIST_ITEM_SELECT + "WHERE t.category.id = :categoryId ORDER BY t.createdAt DESC, t.id DESC",
+           countQuery = "SELECT COUNT(t) FROM Task t WHERE t.category.id = :categoryId")
+    Page<TaskListItem> findListItemsByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+    
+    // Tasks by category as a database cursor for NDJSON export
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(TASK_LIST_ITEM_SELECT + "WHERE t.category.id = :categoryId ORDER BY t.createdAt DESC, t.id DESC")
+    Stream<TaskListItem> streamListItemsByCategoryId(@Param("categoryId") Long categoryId);
+    
+    // Full-text search: ids and ranks of matching tasks, best first (uses idx_tasks_search_vector, see V11).
+    // Status/category filters are optional (NULL = no filter); keyset pagination after (afterRank, afterId)
+    @Query(value = "SELECT ranked.id, ranked.rank FROM (" +
+                   "  SELECT t.id, ts_rank(t.search_vector, q.query) AS rank " +
+                   "  FROM tasks t, websearch_to_tsquery('russian', :query) AS q(query) " +
+                   "  WHERE t.search_vector @@ q.query " +
+                   "    AND (CAST(:status AS varchar) IS NULL OR t.status = CAST(:status AS varchar)) " +
+                   "    AND (CAST(:categoryId AS bigint) IS NULL OR t.category_id = CAST(:categoryId AS bigint)) " +
+                   ") ranked " +
+                   "WHERE CAST(:afterRank AS real) IS NULL " +
+                   "   OR ranked.rank < CAST(:afterRank AS real) " +
+                   "   OR (ranked.rank = CAST(:afterRank AS real) AND ranked.id < CAST(:afterId AS bigint)) " +
+                   "ORDER BY ranked.rank DESC, ranked.id DESC " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<Object[]> searchRanked(@Param("query") String query,
+                                @Param("status") String status,
+                                @Param("categoryId") Long categoryId,
+                                @Param("afterRank") Float afterRank,
+                                @Param("afterId") Long afterId,
+                                @Param("limit") int limit);
+    
+    // List items by ids (order is not preserved, callers reorder)
+    @Query(TASK_LIST_ITEM_SELECT + "WHERE t.id IN :ids")
+    List<TaskListItem> findListItemsByIdIn(@Param("ids") Collection<Long> ids);
+    
     // Find tasks by creator with pagination
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     @Query("SELECT t FROM Task t WHERE t.creator = :creator ORDER BY t.createdAt DESC")
     Page<Task> findByCreator(@Param("creator") User creator, Pageable pageable);
     
     // Find tasks by creator with pagination - method name version (with eager loading)
-    @EntityGraph(attributePaths = {"creator", "executor", "category"})
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     Page<Task> findByCreatorOrderByCreatedAtDesc(User creator, Pageable pageable);
     
     // Find tasks by executor with pagination (with eager loading)
-    @EntityGraph(attributePaths = {"creator", "executor", "category"})
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     @Query("SELECT t FROM Task t WHERE t.executor = :executor ORDER BY t.createdAt DESC")
     Page<Task> findByExecutor(@Param("executor") User executor, Pageable pageable);
     
     // Find tasks by date range
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     @Query("SELECT t FROM Task t WHERE t.startDate >= :startDate AND t.endDate <= :endDate ORDER BY t.createdAt DESC")
     List<Task> findByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
     // Find tasks by creator and date range
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     @Query("SELECT t FROM Task t WHERE t.creator = :creator AND t.startDate >= :startDate AND t.endDate <= :endDate ORDER BY t.createdAt DESC")
     List<Task> findByCreatorAndDateRange(@Param("creator") User creator, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
@@ -75,12 +236,27 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
     // Count open tasks
     long countByStatusAndExecutorIsNull(TaskStatus status);
     
+    // Count all tasks grouped by status: rows of [TaskStatus, Long]
+    @Query("SELECT t.status, COUNT(t) FROM Task t GROUP BY t.status")
+    List<Object[]> countGroupedByStatus();
+    
+    // Count a user's tasks grouped by status in one pass: rows of [TaskStatus, Long created, Long as executor]
+    @Query("SELECT t.status, " +
+           "SUM(CASE WHEN t.creator.id = :userId THEN 1L ELSE 0L END), " +
+           "SUM(CASE WHEN t.executor.id = :userId THEN 1L ELSE 0L END) " +
+           "FROM Task t WHERE t.creator.id = :userId OR t.executor.id = :userId GROUP BY t.status")
+    List<Object[]> countByUserIdGroupedByStatus(@Param("userId") Long userId);
+    
+    // Open unassigned tasks from the trigger-maintained counter: sum of its shard rows (see V10, V14 migrations)
+    @Query(value = "SELECT CAST(SUM(counter_value) AS BIGINT) FROM task_counters WHERE name = 'open_unassigned'", nativeQuery = true)
+    Optional<Long> findOpenUnassignedCounter();
+    
     // Find open tasks by creator with pagination (with eager loading)
-    @EntityGraph(attributePaths = {"creator", "executor", "category"})
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     Page<Task> findByCreatorAndStatusOrderByCreatedAtDesc(User creator, TaskStatus status, Pageable pageable);
     
     // Find tasks by creator and status in list (OPEN + IN_PROGRESS for "open tasks")
-    @EntityGraph(attributePaths = {"creator", "executor", "category"})
+    @EntityGraph(Task.GRAPH_WITH_PARTICIPANTS)
     @Query("SELECT t FROM Task t WHERE t.creator = :creator AND t.status IN :statuses ORDER BY t.createdAt DESC")
     Page<Task> findByCreatorAndStatusIn(@Param("creator") User creator, @Param("statuses") List<TaskStatus> statuses, Pageable pageable);
 }
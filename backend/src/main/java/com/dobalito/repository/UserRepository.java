@@ -1,17 +1,26 @@
 package com.dobalito.repository;
 
 import com.dobalito.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     
+    // Строк за один сетевой обмен для потоковых (export) запросов
+    String STREAM_FETCH_SIZE = "500";
+    
     /**
      * Найти пользователя по email
      */
@@ -43,6 +52,18 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.avatar IS NOT NULL AND u.avatar != ''")
     List<User> findUsersWithAvatars();
     
+    /**
+     * Всего пользователей и пользователей с аватаркой одним запросом: одна строка [Long, Long]
+     */
+    @Query("SELECT COUNT(u), SUM(CASE WHEN u.avatar IS NOT NULL AND u.avatar != '' THEN 1 ELSE 0 END) FROM User u")
+    List<Object[]> countUsersAndUsersWithAvatars();
+    
+    /**
+     * URL всех используемых аватарок (для сборки мусора в хранилище аватарок)
+     */
+    @Query("SELECT DISTINCT u.avatar FROM User u WHERE u.avatar IS NOT NULL AND u.avatar != ''")
+    List<String> findAllAvatarUrls();
+    
     /**
      * Найти пользователей без аватарок
      */
@@ -57,12 +78,68 @@ public interface UserRepository extends JpaRepository<User, Long> {
            "LOWER(u.email) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
     List<User> findByNameOrEmailContaining(@Param("searchTerm") String searchTerm);
     
+    /**
+     * Поиск по имени или email с пагинацией
+     */
+    @Query(value = "SELECT u FROM User u WHERE " +
+                   "LOWER(u.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+                   "LOWER(u.email) LIKE LOWER(CONCAT('%', :searchTerm, '%')) ORDER BY u.id",
+           countQuery = "SELECT COUNT(u) FROM User u WHERE " +
+                        "LOWER(u.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+                        "LOWER(u.email) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
+    Page<User> findByNameOrEmailContaining(@Param("searchTerm") String searchTerm, Pageable pageable);
+    
+    /**
+     * Поиск по имени или email курсором БД (для NDJSON выгрузки, читать внутри транзакции).
+     * Категории приходят тем же запросом: EAGER коллекция под курсором догружалась бы запросом на каждого
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.categories WHERE " +
+           "LOWER(u.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(u.email) LIKE LOWER(CONCAT('%', :searchTerm, '%')) ORDER BY u.id")
+    Stream<User> streamByNameOrEmailContaining(@Param("searchTerm") String searchTerm);
+    
+    /**
+     * Нечеткий поиск по имени и email через pg_trgm (индексы из V12), лучшие совпадения первыми.
+     * query - поисковая строка в нижнем регистре, pattern - она же для LIKE с экранированными %, _ и \
+     */
+    @Query(value = "SELECT u.* FROM users u " +
+                   "WHERE lower(u.name) LIKE :pattern OR lower(u.email) LIKE :pattern " +
+                   "   OR :query <% lower(u.name) OR :query <% lower(u.email) " +
+                   "ORDER BY GREATEST(word_similarity(:query, lower(u.name)), " +
+                   "                  word_similarity(:query, coalesce(lower(u.email), ''))) DESC, u.id " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<User> searchByTrigram(@Param("query") String query, @Param("pattern") String pattern, @Param("limit") int limit);
+    
     /**
      * Найти пользователей по категории
      */
     @Query("SELECT DISTINCT u FROM User u JOIN u.categories c WHERE c.id = :categoryId")
     List<User> findByCategoryId(@Param("categoryId") Long categoryId);
     
+    /**
+     * Найти пользователей по категории с пагинацией
+     */
+    @Query(value = "SELECT u FROM User u WHERE EXISTS " +
+                   "(SELECT 1 FROM User u2 JOIN u2.categories c WHERE u2 = u AND c.id = :categoryId) ORDER BY u.id",
+           countQuery = "SELECT COUNT(DISTINCT u) FROM User u JOIN u.categories c WHERE c.id = :categoryId")
+    Page<User> findByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+    
+    /**
+     * Пользователи категории курсором БД (для NDJSON выгрузки), со всеми их категориями
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.categories WHERE EXISTS " +
+           "(SELECT 1 FROM User u2 JOIN u2.categories c WHERE u2 = u AND c.id = :categoryId) ORDER BY u.id")
+    Stream<User> streamByCategoryId(@Param("categoryId") Long categoryId);
+    
     /**
      * Найти пользователей по названию категории
      */
@@ -74,5 +151,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     @Query("SELECT u FROM User u")
     List<User> findAllUsers();
+    
+    /**
+     * Найти всех пользователей с пагинацией
+     */
+    @Query(value = "SELECT u FROM User u ORDER BY u.id", countQuery = "SELECT COUNT(u) FROM User u")
+    Page<User> findAllUsers(Pageable pageable);
+    
+    /**
+     * Все пользователи курсором БД (для NDJSON выгрузки), с категориями
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.categories ORDER BY u.id")
+    Stream<User> streamAllUsers();
 }
 
@@ -0,0 +1,77 @@
+package com.dobalito.service;
+
+import com.dobalito.dto.SystemStatsDto;
+import com.dobalito.dto.TaskStatusCounts;
+import com.dobalito.repository.CategoryRepository;
+import com.dobalito.repository.TaskRepository;
+import com.dobalito.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Статистика системы для админки: по одному агрегирующему запросу на таблицу вместо загрузки всех строк.
+ * Результат кешируется на короткое время; параллельные запросы после истечения ждут один общий подсчет,
+ * поэтому частый опрос дашборда не нагружает БД. Кеш не сбрасывается при изменениях: при постоянном потоке
+ * записей каждый опрос снова считал бы агрегаты, отставание ограничено admin.stats.cache-ttl.
+ */
+@Service
+public class AdminStatsService {
+    
+    private static final String STATS_KEY = "system";
+    
+    private final UserRepository userRepository;
+    private final CategoryRepository categoryRepository;
+    private final TaskRepository taskRepository;
+    private final Cache<String, SystemStatsDto> cache;
+    
+    public AdminStatsService(UserRepository userRepository,
+                             CategoryRepository categoryRepository,
+                             TaskRepository taskRepository,
+                             @Value("${admin.stats.cache-ttl:30s}") Duration cacheTtl) {
+        this.userRepository = userRepository;
+        this.categoryRepository = categoryRepository;
+        this.taskRepository = taskRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+    
+    /**
+     * Получить статистику системы (из кеша, если она посчитана не раньше cache-ttl назад)
+     */
+    public SystemStatsDto getSystemStats() {
+        return cache.get(STATS_KEY, key -> computeSystemStats());
+    }
+    
+    private SystemStatsDto computeSystemStats() {
+        Object[] users = singleRow(userRepository.countUsersAndUsersWithAvatars());
+        Object[] categories = singleRow(categoryRepository.countCategoriesAndActiveCategories());
+        TaskStatusCounts tasks = TaskStatusCounts.from(taskRepository.countGroupedByStatus());
+        
+        return new SystemStatsDto(
+            toLong(users[0]),
+            toLong(users[1]),
+            toLong(categories[0]),
+            toLong(categories[1]),
+            tasks,
+            System.currentTimeMillis()
+        );
+    }
+    
+    private Object[] singleRow(List<Object[]> rows) {
+        return rows.isEmpty() ? new Object[] {0L, 0L} : rows.get(0);
+    }
+    
+    /**
+     * SUM по пустой таблице возвращает NULL
+     */
+    private long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+}
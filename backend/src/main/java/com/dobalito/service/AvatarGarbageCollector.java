@@ -0,0 +1,80 @@
+package com.dobalito.service;
+
+import com.dobalito.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Фоновое удаление файлов аватарок, на которые не ссылается ни один User.avatar.
+ * Свежие файлы не трогаем (grace-period): аватарка могла быть записана на диск,
+ * а ссылка на нее еще не сохранена в БД.
+ */
+@Component
+@ConditionalOnProperty(name = "avatars.gc.enabled", havingValue = "true", matchIfMissing = true)
+public class AvatarGarbageCollector {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AvatarGarbageCollector.class);
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private AvatarStorage avatarStorage;
+    
+    @Value("${avatars.gc.grace-period:1h}")
+    private Duration gracePeriod;
+    
+    @Scheduled(initialDelayString = "${avatars.gc.initial-delay:PT10M}", fixedDelayString = "${avatars.gc.interval:PT1H}")
+    public void collectGarbage() {
+        // Ссылки читаем до обхода хранилища: все, что запишется позже, моложе grace-period
+        Set<String> referenced = referencedFilenames();
+        long cutoff = System.currentTimeMillis() - gracePeriod.toMillis();
+        
+        int deleted = 0;
+        try (Stream<BlobMetadata> files = avatarStorage.listFiles()) {
+            for (BlobMetadata file : (Iterable<BlobMetadata>) files::iterator) {
+                String key = file.getKey();
+                if (referenced.contains(key.substring(key.lastIndexOf('/') + 1))
+                        || referenced.contains(avatarStorage.avatarFilenameOf(key))
+                        || file.getLastModified() > cutoff) {
+                    continue;
+                }
+                // Время в списке могло устареть: store обновляет его при повторной загрузке того же изображения
+                if (avatarStorage.deleteIfNotModifiedSince(key, cutoff)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Ошибки хранилища (в т.ч. S3 при листинге) - повторим в следующий запуск
+            logger.error("Ошибка при удалении неиспользуемых аватарок: {}", e.getMessage());
+        }
+        
+        if (deleted > 0) {
+            logger.info("Удалено неиспользуемых файлов аватарок: {}", deleted);
+        }
+    }
+    
+    /**
+     * Имена файлов из URL аватарок пользователей (часть после последнего '/')
+     */
+    private Set<String> referencedFilenames() {
+        List<String> avatarUrls = userRepository.findAllAvatarUrls();
+        Set<String> filenames = new HashSet<>(avatarUrls.size() * 2);
+        for (String avatarUrl : avatarUrls) {
+            filenames.add(avatarUrl.substring(avatarUrl.lastIndexOf('/') + 1));
+        }
+        return filenames;
+    }
+}
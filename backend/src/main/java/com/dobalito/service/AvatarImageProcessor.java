@@ -0,0 +1,256 @@
+package com.dobalito.service;
+
+import com.dobalito.exception.ValidationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Обработка загруженной аватарки: проверка, декодирование, поворот по EXIF,
+ * квадратная обрезка по центру и JPEG варианты фиксированных размеров.
+ * Перекодирование отбрасывает все метаданные исходного файла (EXIF, GPS и т.д.).
+ */
+@Component
+public class AvatarImageProcessor {
+    
+    private static final Set<String> SUPPORTED_FORMATS = Set.of("jpeg", "png", "gif", "bmp");
+    
+    private final List<Integer> variantSizes;
+    private final int defaultSize;
+    private final float jpegQuality;
+    private final long maxPixels;
+    
+    public AvatarImageProcessor(@Value("${avatars.variant-sizes:64,128,512}") List<Integer> variantSizes,
+                                @Value("${avatars.default-size:128}") int defaultSize,
+                                @Value("${avatars.jpeg-quality:0.85}") float jpegQuality,
+                                @Value("${avatars.max-pixels:40000000}") long maxPixels) {
+        this.variantSizes = variantSizes.stream().sorted().distinct().toList();
+        this.defaultSize = defaultSize;
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+    }
+    
+    /**
+     * Размеры вариантов по возрастанию
+     */
+    public List<Integer> getVariantSizes() {
+        return variantSizes;
+    }
+    
+    /**
+     * Наименьший вариант, не меньше запрошенного размера (или наибольший, если запрошено больше).
+     * Без размера - вариант для списков (avatars.default-size): ссылки без ?size= не должны тянуть наибольший файл.
+     */
+    public int resolveVariantSize(Integer requestedSize) {
+        int largest = variantSizes.get(variantSizes.size() - 1);
+        int target = requestedSize != null ? requestedSize : defaultSize;
+        return variantSizes.stream()
+            .filter(size -> size >= target)
+            .findFirst()
+            .orElse(largest);
+    }
+    
+    /**
+     * Декодировать изображение и подготовить JPEG варианты: размер -> байты
+     */
+    public Map<Integer, byte[]> createVariants(byte[] original) {
+        BufferedImage image = square(applyOrientation(decode(original), readExifOrientation(original)));
+        
+        Map<Integer, byte[]> variants = new LinkedHashMap<>();
+        for (int size : variantSizes) {
+            variants.put(size, encodeJpeg(resize(image, Math.min(size, image.getWidth()))));
+        }
+        return variants;
+    }
+    
+    private BufferedImage decode(byte[] original) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(original))) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new ValidationException("Файл не является изображением");
+            }
+            ImageReader reader = readers.next();
+            try {
+                if (!SUPPORTED_FORMATS.contains(reader.getFormatName().toLowerCase())) {
+                    throw new ValidationException("Неподдерживаемый формат изображения: " + reader.getFormatName());
+                }
+                reader.setInput(input, true, true);
+                
+                // Размер проверяем по заголовку до декодирования пикселей (защита от "image bomb")
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new ValidationException("Слишком большое разрешение изображения");
+                }
+                
+                return toRgb(reader.read(0));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new ValidationException("Не удалось прочитать изображение: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Приводит к RGB без альфа-канала (прозрачность заливается белым) - JPEG не поддерживает альфу
+     */
+    private BufferedImage toRgb(BufferedImage source) {
+        if (source.getType() == BufferedImage.TYPE_INT_RGB) {
+            return source;
+        }
+        BufferedImage rgb = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, source.getWidth(), source.getHeight());
+            graphics.drawImage(source, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+    
+    private BufferedImage square(BufferedImage image) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        int x = (image.getWidth() - side) / 2;
+        int y = (image.getHeight() - side) / 2;
+        return image.getSubimage(x, y, side, side);
+    }
+    
+    /**
+     * Уменьшение квадратного изображения. Шагами не более чем вдвое, чтобы билинейная интерполяция не давала "лесенку"
+     */
+    private BufferedImage resize(BufferedImage image, int targetSize) {
+        BufferedImage current = image;
+        int currentSize = image.getWidth();
+        do {
+            currentSize = Math.max(targetSize, currentSize / 2);
+            BufferedImage next = new BufferedImage(currentSize, currentSize, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, currentSize, currentSize, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (currentSize > targetSize);
+        return current;
+    }
+    
+    private byte[] encodeJpeg(BufferedImage image) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException e) {
+            throw new RuntimeException("Не удалось сохранить изображение", e);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+    
+    /**
+     * Поворот/отражение по тегу EXIF Orientation (1-8), как это делает браузер для исходного файла
+     */
+    private BufferedImage applyOrientation(BufferedImage image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swap = orientation >= 5;
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { transform.translate(width, 0); transform.scale(-1, 1); }
+            case 3 -> { transform.translate(width, height); transform.rotate(Math.PI); }
+            case 4 -> { transform.translate(0, height); transform.scale(1, -1); }
+            case 5 -> { transform.rotate(Math.PI / 2); transform.scale(1, -1); }
+            case 6 -> { transform.translate(height, 0); transform.rotate(Math.PI / 2); }
+            case 7 -> { transform.scale(-1, 1); transform.translate(-height, 0); transform.translate(0, width); transform.rotate(3 * Math.PI / 2); }
+            case 8 -> { transform.translate(0, width); transform.rotate(3 * Math.PI / 2); }
+            default -> { }
+        }
+        BufferedImage rotated = new BufferedImage(swap ? height : width, swap ? width : height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rotated.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rotated;
+    }
+    
+    /**
+     * Значение EXIF Orientation из JPEG (сегмент APP1), 1 - если тега нет или файл не JPEG
+     */
+    private int readExifOrientation(byte[] data) {
+        if (data.length < 4 || (data[0] & 0xFF) != 0xFF || (data[1] & 0xFF) != 0xD8) {
+            return 1;
+        }
+        int offset = 2;
+        while (offset + 4 <= data.length && (data[offset] & 0xFF) == 0xFF) {
+            int marker = data[offset + 1] & 0xFF;
+            int length = ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+            if (marker == 0xDA || length < 2) {
+                // Начались данные изображения - EXIF дальше не бывает
+                return 1;
+            }
+            int segmentStart = offset + 4;
+            if (marker == 0xE1 && segmentStart + 6 <= data.length
+                    && new String(data, segmentStart, 4, StandardCharsets.US_ASCII).equals("Exif")) {
+                return readTiffOrientation(data, segmentStart + 6, Math.min(data.length, offset + 2 + length));
+            }
+            offset += 2 + length;
+        }
+        return 1;
+    }
+    
+    private int readTiffOrientation(byte[] data, int tiffStart, int end) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data, 0, end);
+            buffer.order(data[tiffStart] == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            int ifdOffset = tiffStart + buffer.getInt(tiffStart + 4);
+            int entries = buffer.getShort(ifdOffset) & 0xFFFF;
+            for (int i = 0; i < entries; i++) {
+                int entry = ifdOffset + 2 + i * 12;
+                if ((buffer.getShort(entry) & 0xFFFF) == 0x0112) {
+                    return buffer.getShort(entry + 8) & 0xFFFF;
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // Поврежденный EXIF - считаем, что поворота нет
+        }
+        return 1;
+    }
+}
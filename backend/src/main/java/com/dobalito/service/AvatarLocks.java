@@ -0,0 +1,81 @@
+package com.dobalito.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+/**
+ * Блокировки аватарки по хешу содержимого, общие для всех экземпляров (advisory locks PostgreSQL на время транзакции).
+ * AvatarStorage.store держит разделяемую блокировку, пока проверяет и обновляет время существующих вариантов,
+ * сборщик мусора - исключительную, пока перечитывает время файла и удаляет его. Удаление не может попасть
+ * между проверкой и touch: либо touch не находит файл и варианты пишутся заново, либо сборщик видит свежее время.
+ */
+@Component
+public class AvatarLocks {
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    /**
+     * Действие с файлами хранилища под блокировкой
+     */
+    @FunctionalInterface
+    public interface LockedAction<T> {
+        T run() throws IOException;
+    }
+    
+    /**
+     * Выполнить action под разделяемой блокировкой аватарки (ждет, пока сборщик мусора закончит с ней)
+     */
+    public <T> T withShared(String contentHash, LockedAction<T> action) throws IOException {
+        return inTransaction(() -> {
+            entityManager.createNativeQuery("SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock_shared(:key)) AS l")
+                    .setParameter("key", lockKey(contentHash))
+                    .getSingleResult();
+            return Optional.ofNullable(action.run());
+        }).orElse(null);
+    }
+    
+    /**
+     * Выполнить action под исключительной блокировкой аватарки. Не ждет: empty - аватарку сейчас сохраняют
+     */
+    public <T> Optional<T> tryExclusive(String contentHash, LockedAction<T> action) throws IOException {
+        return inTransaction(() -> {
+            Object locked = entityManager.createNativeQuery("SELECT pg_try_advisory_xact_lock(:key)")
+                    .setParameter("key", lockKey(contentHash))
+                    .getSingleResult();
+            return Boolean.TRUE.equals(locked) ? Optional.ofNullable(action.run()) : Optional.empty();
+        });
+    }
+    
+    private <T> Optional<T> inTransaction(LockedAction<Optional<T>> action) throws IOException {
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                try {
+                    return action.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Ключ блокировки - первые 64 бита хеша содержимого
+     */
+    private long lockKey(String contentHash) {
+        return Long.parseUnsignedLong(contentHash, 0, 16, 16);
+    }
+}
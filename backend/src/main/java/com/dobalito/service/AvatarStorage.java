@@ -0,0 +1,367 @@
+package com.dobalito.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Файлы аватарок в BlobStore, адресуемые по содержимому.
+ * Имя аватарки - SHA-256 загруженного файла, поэтому одинаковые загрузки хранятся один раз,
+ * а варианты лежат под ключами с префиксом хеша: avatars/ab/cd/{hash}-{size}.jpg.
+ * Метаданные файлов (размер, тип, ETag по содержимому) кешируются, поэтому повторная отдача
+ * популярной аватарки не обращается к хранилищу на каждый запрос.
+ * Файлы неизменяемы; аватарки, загруженные до адресации по содержимому, лежат в avatars/ под UUID именами.
+ * Повторная загрузка и сборщик мусора работают с файлами одного хеша под общей блокировкой (AvatarLocks).
+ */
+@Component
+public class AvatarStorage implements MeterBinder {
+    
+    // Файл аватарки по одному URL никогда не меняется - кешируем на год без перепроверок
+    public static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    
+    private static final String KEY_PREFIX = "avatars/";
+    private static final String AVATAR_EXTENSION = ".jpg";
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern VARIANT_FILENAME = Pattern.compile("(.+)-\\d{1,4}\\.jpg");
+    
+    private final BlobStore blobStore;
+    private final AvatarImageProcessor avatarImageProcessor;
+    private final AvatarLocks avatarLocks;
+    private final Cache<String, CachedAvatar> metadataCache;
+    private final Cache<String, URI> redirectCache;
+    private final Duration presignedUrlTtl;
+    
+    public AvatarStorage(BlobStore blobStore,
+                         AvatarImageProcessor avatarImageProcessor,
+                         AvatarLocks avatarLocks,
+                         @Value("${avatars.metadata-cache.max-size:10000}") long cacheMaxSize,
+                         @Value("${avatars.metadata-cache.ttl:1h}") Duration cacheTtl,
+                         @Value("${storage.s3.presigned-url-ttl:1h}") Duration presignedUrlTtl) {
+        this.blobStore = blobStore;
+        this.avatarImageProcessor = avatarImageProcessor;
+        this.avatarLocks = avatarLocks;
+        this.presignedUrlTtl = presignedUrlTtl;
+        this.metadataCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterAccess(cacheTtl)
+                .recordStats()
+                .build();
+        // Одна и та же ссылка отдается половину срока ее действия, чтобы браузер мог закешировать ответ
+        this.redirectCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(getRedirectMaxAge())
+                .recordStats()
+                .build();
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, metadataCache, "avatar.metadata");
+        CaffeineCacheMetrics.monitor(registry, redirectCache, "avatar.redirect");
+    }
+    
+    /**
+     * Сохранить аватарку из загруженного изображения, возвращает имя аватарки для URL ({sha256}.jpg).
+     * Если такое же изображение уже есть, варианты заново не создаются.
+     */
+    public String store(byte[] original) throws IOException {
+        return store(original, HexFormat.of().formatHex(sha256().digest(original)));
+    }
+    
+    /**
+     * Сохранить аватарку, SHA-256 (hex) которой уже посчитан при чтении загрузки
+     */
+    public String store(byte[] original, String contentHash) throws IOException {
+        if (!CONTENT_HASH.matcher(contentHash).matches()) {
+            throw new IllegalArgumentException("Invalid content hash: " + contentHash);
+        }
+        if (avatarLocks.withShared(contentHash, () -> touchVariants(contentHash))) {
+            return contentHash + AVATAR_EXTENSION;
+        }
+        
+        Map<Integer, byte[]> variants = avatarImageProcessor.createVariants(original);
+        for (Map.Entry<Integer, byte[]> variant : variants.entrySet()) {
+            byte[] content = variant.getValue();
+            blobStore.put(variantKey(contentHash, variant.getKey()), new ByteArrayInputStream(content),
+                content.length, MediaType.IMAGE_JPEG_VALUE, CACHE_CONTROL);
+        }
+        return contentHash + AVATAR_EXTENSION;
+    }
+    
+    /**
+     * Обновить время существующих вариантов, false - набора нет (или сборщик мусора удалил его часть) и его нужно записать.
+     * Свежее время защищает файлы от сборщика мусора, пока ссылка сохраняется в БД.
+     */
+    private boolean touchVariants(String contentHash) throws IOException {
+        List<Integer> sizes = avatarImageProcessor.getVariantSizes();
+        // Наибольший вариант пишется последним: если он есть, набор вариантов полный
+        if (blobStore.stat(variantKey(contentHash, sizes.get(sizes.size() - 1))).isEmpty()) {
+            return false;
+        }
+        try {
+            for (int size : sizes) {
+                blobStore.touch(variantKey(contentHash, size));
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Найти файл аватарки нужного размера.
+     * Берется наименьший вариант не меньше size (без size - не меньше avatars.default-size).
+     * Для аватарок, загруженных до появления вариантов, возвращается исходный файл.
+     */
+    public Optional<StoredFile> find(String filename, Integer size) throws IOException {
+        validateFilename(filename);
+        int variantSize = avatarImageProcessor.resolveVariantSize(size);
+        String cacheKey = filename + "@" + variantSize;
+        CachedAvatar cached;
+        try {
+            cached = metadataCache.get(cacheKey, key -> load(filename, variantSize));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (cached == null) {
+            return Optional.empty();
+        }
+        // Кеширующее хранилище скачает файл заново, если он был вытеснен с локального диска
+        if (blobStore.localFile(cached.key).isEmpty()) {
+            metadataCache.invalidate(cacheKey);
+            return Optional.empty();
+        }
+        return Optional.of(cached.file);
+    }
+    
+    /**
+     * Прямая ссылка на файл аватарки в хранилище (S3 с storage.s3.redirect-reads), empty - отдавать через find
+     */
+    public Optional<URI> findRedirect(String filename, Integer size) throws IOException {
+        if (!blobStore.supportsPresignedUrls()) {
+            return Optional.empty();
+        }
+        validateFilename(filename);
+        int variantSize = avatarImageProcessor.resolveVariantSize(size);
+        try {
+            return Optional.ofNullable(redirectCache.get(filename + "@" + variantSize, key -> presign(filename, variantSize)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Сколько можно кешировать ответ со ссылкой из findRedirect
+     */
+    public Duration getRedirectMaxAge() {
+        return presignedUrlTtl.dividedBy(2);
+    }
+    
+    /**
+     * Все файлы аватарок в хранилище. Поток нужно закрыть.
+     */
+    public Stream<BlobMetadata> listFiles() throws IOException {
+        return blobStore.list(KEY_PREFIX);
+    }
+    
+    /**
+     * Имя аватарки (как в URL), к которой относится файл хранилища
+     */
+    public String avatarFilenameOf(String key) {
+        String name = key.substring(key.lastIndexOf('/') + 1);
+        Matcher variant = VARIANT_FILENAME.matcher(name);
+        return variant.matches() ? variant.group(1) + AVATAR_EXTENSION : name;
+    }
+    
+    /**
+     * Удалить файл, если он не изменялся после cutoffMillis. Время перечитывается прямо перед удалением:
+     * store мог обновить его после того, как сборщик мусора получил список файлов. Для аватарок по хешу
+     * проверка и удаление идут под исключительной блокировкой, поэтому store не может обновить время между ними;
+     * если аватарку сейчас сохраняют, файл пропускается до следующего запуска.
+     * Возвращает true, если файл удален.
+     */
+    public boolean deleteIfNotModifiedSince(String key, long cutoffMillis) throws IOException {
+        String avatarId = avatarFilenameOf(key).replaceFirst("\\.jpg$", "");
+        if (!CONTENT_HASH.matcher(avatarId).matches()) {
+            // Старые файлы под UUID именами store не переиспользует
+            return deleteIfOlder(key, cutoffMillis);
+        }
+        return avatarLocks.tryExclusive(avatarId, () -> deleteIfOlder(key, cutoffMillis)).orElse(false);
+    }
+    
+    private boolean deleteIfOlder(String key, long cutoffMillis) throws IOException {
+        Optional<BlobMetadata> current = blobStore.stat(key);
+        if (current.isEmpty() || current.get().getLastModified() > cutoffMillis) {
+            return false;
+        }
+        delete(key);
+        return true;
+    }
+    
+    /**
+     * Удалить файл хранилища и сбросить закешированные метаданные его аватарки
+     */
+    public void delete(String key) throws IOException {
+        blobStore.delete(key);
+        String cacheKeyPrefix = avatarFilenameOf(key) + "@";
+        metadataCache.asMap().keySet().removeIf(cacheKey -> cacheKey.startsWith(cacheKeyPrefix));
+        redirectCache.asMap().keySet().removeIf(cacheKey -> cacheKey.startsWith(cacheKeyPrefix));
+    }
+    
+    private CachedAvatar load(String filename, int variantSize) {
+        try {
+            for (String key : candidateKeys(filename, variantSize)) {
+                Optional<Path> path = blobStore.localFile(key);
+                StoredFile file = path.isPresent() ? describe(path.get()) : null;
+                if (file != null) {
+                    return new CachedAvatar(key, file);
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private URI presign(String filename, int variantSize) {
+        try {
+            for (String key : candidateKeys(filename, variantSize)) {
+                if (blobStore.stat(key).isPresent()) {
+                    return blobStore.presignedUrl(key, presignedUrlTtl).orElse(null);
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Ключи, под которыми может лежать файл: вариант нужного размера, затем исходный файл старой загрузки
+     */
+    private List<String> candidateKeys(String filename, int variantSize) {
+        if (!filename.endsWith(AVATAR_EXTENSION)) {
+            return List.of(KEY_PREFIX + filename);
+        }
+        String avatarId = filename.substring(0, filename.length() - AVATAR_EXTENSION.length());
+        return List.of(variantKey(avatarId, variantSize), KEY_PREFIX + filename);
+    }
+    
+    /**
+     * Метаданные файла или null, если его нет
+     */
+    private StoredFile describe(Path path) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        return new StoredFile(path, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                contentHashEtag(path), contentTypeOf(path.getFileName().toString()));
+    }
+    
+    /**
+     * Ключ варианта: avatars/ab/cd/{hash}-{size}.jpg для аватарок по хешу, avatars/{id}-{size}.jpg для старых
+     */
+    private String variantKey(String avatarId, int size) {
+        String filename = avatarId + "-" + size + AVATAR_EXTENSION;
+        if (!CONTENT_HASH.matcher(avatarId).matches()) {
+            return KEY_PREFIX + filename;
+        }
+        return KEY_PREFIX + avatarId.substring(0, 2) + "/" + avatarId.substring(2, 4) + "/" + filename;
+    }
+    
+    private String contentHashEtag(Path path) {
+        MessageDigest digest = sha256();
+        try (InputStream input = new DigestInputStream(Files.newInputStream(path), digest)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+    }
+    
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    private void validateFilename(String filename) {
+        if (filename == null || filename.trim().isEmpty()) {
+            throw new IllegalArgumentException("Filename cannot be null or empty");
+        }
+        
+        // Проверяем безопасность имени файла (защита от path traversal)
+        if (filename.contains("..") || filename.contains("/") || filename.contains("\\")) {
+            throw new IllegalArgumentException("Invalid filename: " + filename);
+        }
+    }
+    
+    /**
+     * Определяет Content-Type по расширению файла
+     */
+    private MediaType contentTypeOf(String filename) {
+        String extension = filename.toLowerCase();
+        if (extension.endsWith(".png")) {
+            return MediaType.IMAGE_PNG;
+        } else if (extension.endsWith(".jpg") || extension.endsWith(".jpeg")) {
+            return MediaType.IMAGE_JPEG;
+        } else if (extension.endsWith(".gif")) {
+            return MediaType.IMAGE_GIF;
+        } else if (extension.endsWith(".webp")) {
+            return MediaType.parseMediaType("image/webp");
+        } else if (extension.endsWith(".svg")) {
+            return MediaType.parseMediaType("image/svg+xml");
+        } else {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+    
+    /**
+     * Закешированные метаданные и ключ файла в хранилище
+     */
+    private static class CachedAvatar {
+        
+        private final String key;
+        private final StoredFile file;
+        
+        CachedAvatar(String key, StoredFile file) {
+            this.key = key;
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.dobalito.service;
+
+/**
+ * Прочитанное тело загрузки аватарки и SHA-256 (hex), посчитанный во время чтения
+ */
+public class AvatarUpload {
+    
+    private final byte[] content;
+    private final String contentHash;
+    
+    public AvatarUpload(byte[] content, String contentHash) {
+        this.content = content;
+        this.contentHash = contentHash;
+    }
+    
+    public byte[] getContent() {
+        return content;
+    }
+    
+    public String getContentHash() {
+        return contentHash;
+    }
+}
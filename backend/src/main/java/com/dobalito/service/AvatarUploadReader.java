@@ -0,0 +1,110 @@
+package com.dobalito.service;
+
+import com.dobalito.exception.PayloadTooLargeException;
+import com.dobalito.exception.ValidationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Потоковое чтение тела запроса с аватаркой без multipart разбора и временных файлов.
+ * Размер и сигнатура формата проверяются по ходу чтения: неподходящая загрузка прерывается
+ * на первых байтах или при превышении лимита, не дочитывая тело. SHA-256 считается там же.
+ */
+@Component
+public class AvatarUploadReader {
+    
+    private static final int CHUNK_SIZE = 8192;
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    // Байт достаточно для сигнатуры любого поддерживаемого формата
+    private static final int SIGNATURE_LENGTH = 8;
+    
+    private static final Map<String, byte[]> SIGNATURES = Map.of(
+        "image/jpeg", new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},
+        "image/png", new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'},
+        "image/gif", new byte[] {'G', 'I', 'F', '8'},
+        "image/bmp", new byte[] {'B', 'M'}
+    );
+    
+    private final long maxUploadSize;
+    
+    public AvatarUploadReader(@Value("${avatars.max-upload-size:10MB}") DataSize maxUploadSize) {
+        this.maxUploadSize = maxUploadSize.toBytes();
+    }
+    
+    /**
+     * Прочитать загрузку.
+     * contentLength - из заголовка Content-Length (-1, если тело передается chunked).
+     */
+    public AvatarUpload read(InputStream body, long contentLength, String contentType) throws IOException {
+        // Тип без параметров: "image/jpeg; charset=..." -> "image/jpeg"
+        String mimeType = contentType != null ? contentType.split(";", 2)[0].trim().toLowerCase() : null;
+        byte[] signature = mimeType != null ? SIGNATURES.get(mimeType) : null;
+        if (signature == null) {
+            throw new ValidationException("Неподдерживаемый тип файла: " + contentType);
+        }
+        // Заявленный размер проверяем до чтения тела
+        if (contentLength > maxUploadSize) {
+            throw new PayloadTooLargeException(tooLargeMessage());
+        }
+        
+        MessageDigest digest = sha256();
+        ByteArrayOutputStream content = new ByteArrayOutputStream(
+            contentLength > 0 ? (int) contentLength : DEFAULT_BUFFER_SIZE);
+        byte[] chunk = new byte[CHUNK_SIZE];
+        boolean signatureChecked = false;
+        try (InputStream input = new DigestInputStream(body, digest)) {
+            int read;
+            while ((read = input.read(chunk)) != -1) {
+                if (content.size() + read > maxUploadSize) {
+                    throw new PayloadTooLargeException(tooLargeMessage());
+                }
+                content.write(chunk, 0, read);
+                if (!signatureChecked && content.size() >= SIGNATURE_LENGTH) {
+                    checkSignature(content.toByteArray(), signature, mimeType);
+                    signatureChecked = true;
+                }
+            }
+        }
+        if (!signatureChecked) {
+            checkSignature(content.toByteArray(), signature, mimeType);
+        }
+        
+        return new AvatarUpload(content.toByteArray(), HexFormat.of().formatHex(digest.digest()));
+    }
+    
+    private void checkSignature(byte[] head, byte[] signature, String mimeType) {
+        if (head.length < signature.length) {
+            throw new ValidationException("Файл не является изображением");
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (head[i] != signature[i]) {
+                throw new ValidationException("Содержимое файла не соответствует типу " + mimeType);
+            }
+        }
+    }
+    
+    private String tooLargeMessage() {
+        DataSize limit = DataSize.ofBytes(maxUploadSize);
+        return limit.toMegabytes() > 0
+            ? "Размер файла превышает " + limit.toMegabytes() + " МБ"
+            : "Размер файла превышает " + limit.toKilobytes() + " КБ";
+    }
+    
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.dobalito.service;
+
+/**
+ * Ключ, размер и время изменения объекта в BlobStore
+ */
+public class BlobMetadata {
+    
+    private final String key;
+    private final long length;
+    private final long lastModified;
+    
+    public BlobMetadata(String key, long length, long lastModified) {
+        this.key = key;
+        this.length = length;
+        this.lastModified = lastModified;
+    }
+    
+    public String getKey() {
+        return key;
+    }
+    
+    public long getLength() {
+        return length;
+    }
+    
+    /**
+     * Время изменения, миллисекунды от эпохи
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,70 @@
+package com.dobalito.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище файлов (blob) по ключу вида "avatars/ab/cd/name.jpg".
+ * Реализации: локальная файловая система (LocalBlobStore) и S3 совместимое хранилище (S3BlobStore),
+ * перед которым стоит локальный дисковый кеш (CachingBlobStore). Выбирается настройкой storage.backend.
+ */
+public interface BlobStore {
+    
+    /**
+     * Имя хранилища для логов
+     */
+    String getName();
+    
+    /**
+     * Записать объект потоком. Читатели не видят недописанный объект: он появляется целиком после записи.
+     */
+    void put(String key, InputStream content, long length, String contentType, String cacheControl) throws IOException;
+    
+    /**
+     * Поток содержимого объекта (закрывает вызывающий), empty - объекта нет
+     */
+    Optional<InputStream> get(String key) throws IOException;
+    
+    /**
+     * Размер и время изменения объекта, empty - объекта нет
+     */
+    Optional<BlobMetadata> stat(String key) throws IOException;
+    
+    /**
+     * Обновить время изменения объекта (защита от сборки мусора при повторном использовании).
+     * NoSuchFileException - объекта нет (например, его только что удалил сборщик мусора).
+     */
+    void touch(String key) throws IOException;
+    
+    void delete(String key) throws IOException;
+    
+    /**
+     * Все объекты с ключами, начинающимися с prefix. Поток нужно закрыть.
+     */
+    Stream<BlobMetadata> list(String prefix) throws IOException;
+    
+    /**
+     * Файл объекта на локальном диске для отдачи через sendfile.
+     * empty - объекта нет или хранилище не дает локальных файлов (тогда клиента перенаправляют по presignedUrl).
+     */
+    Optional<Path> localFile(String key) throws IOException;
+    
+    /**
+     * Поддерживает ли хранилище прямые ссылки на объекты (presignedUrl)
+     */
+    default boolean supportsPresignedUrls() {
+        return false;
+    }
+    
+    /**
+     * Подписанная ссылка для чтения объекта напрямую из хранилища, минуя сервер приложения
+     */
+    default Optional<URI> presignedUrl(String key, Duration ttl) {
+        return Optional.empty();
+    }
+}
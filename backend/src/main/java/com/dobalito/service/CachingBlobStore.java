@@ -0,0 +1,201 @@
+package com.dobalito.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Локальный дисковый кеш перед удаленным хранилищем (read-through).
+ * Горячие объекты читаются и отдаются через sendfile с локального диска, остальные скачиваются
+ * при первом обращении; при превышении max-size вытесняются редко используемые (LRU/TinyLFU Caffeine).
+ * Загружаемые объекты сначала пишутся в кеш, затем отправляются в удаленное хранилище из файла.
+ * Объекты должны быть неизменяемыми: кеш не проверяет, изменился ли объект в удаленном хранилище.
+ * Вытесненный файл удаляется с задержкой: его может еще отдавать sendfile по ранее полученному пути.
+ */
+public class CachingBlobStore implements BlobStore, MeterBinder, AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CachingBlobStore.class);
+    
+    private static final Duration EVICTION_GRACE = Duration.ofSeconds(30);
+    
+    private final BlobStore delegate;
+    private final LocalBlobStore files;
+    private final Cache<String, Path> index;
+    private final ScheduledExecutorService evictionScheduler;
+    
+    public CachingBlobStore(BlobStore delegate, Path cacheDir, long maxSizeBytes) throws IOException {
+        this.delegate = delegate;
+        this.files = new LocalBlobStore(cacheDir);
+        // Вес - размер файла в КБ: Caffeine ограничивает суммарный вес значением int
+        this.index = Caffeine.newBuilder()
+            .maximumWeight(Math.max(1, maxSizeBytes / 1024))
+            .<String, Path>weigher((key, path) -> weightOf(path))
+            .evictionListener((String key, Path path, RemovalCause cause) -> scheduleDelete(key))
+            .recordStats()
+            .build();
+        this.evictionScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "blob-cache-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        // Файлы, скачанные до перезапуска, остаются в кеше
+        try (Stream<BlobMetadata> cached = files.list("")) {
+            cached.forEach(metadata -> index.put(metadata.getKey(), files.localFile(metadata.getKey()).get()));
+        }
+    }
+    
+    @Override
+    public String getName() {
+        return delegate.getName() + " (cached)";
+    }
+    
+    @Override
+    public void put(String key, InputStream content, long length, String contentType, String cacheControl) throws IOException {
+        files.put(key, content, length, contentType, cacheControl);
+        Path cached = files.localFile(key).get();
+        try (InputStream upload = Files.newInputStream(cached)) {
+            delegate.put(key, upload, Files.size(cached), contentType, cacheControl);
+        } catch (IOException e) {
+            files.delete(key);
+            throw e;
+        }
+        index.put(key, cached);
+    }
+    
+    @Override
+    public Optional<InputStream> get(String key) throws IOException {
+        Optional<Path> cached = localFile(key);
+        return cached.isPresent() ? Optional.of(Files.newInputStream(cached.get())) : Optional.empty();
+    }
+    
+    @Override
+    public Optional<BlobMetadata> stat(String key) throws IOException {
+        return delegate.stat(key);
+    }
+    
+    @Override
+    public void touch(String key) throws IOException {
+        delegate.touch(key);
+    }
+    
+    @Override
+    public void delete(String key) throws IOException {
+        delegate.delete(key);
+        index.invalidate(key);
+        files.delete(key);
+    }
+    
+    @Override
+    public Stream<BlobMetadata> list(String prefix) throws IOException {
+        return delegate.list(prefix);
+    }
+    
+    /**
+     * Файл из кеша; при промахе объект скачивается один раз, параллельные запросы того же ключа ждут
+     */
+    @Override
+    public Optional<Path> localFile(String key) throws IOException {
+        try {
+            return Optional.ofNullable(index.get(key, this::download));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    @Override
+    public boolean supportsPresignedUrls() {
+        return delegate.supportsPresignedUrls();
+    }
+    
+    @Override
+    public Optional<URI> presignedUrl(String key, Duration ttl) {
+        return delegate.presignedUrl(key, ttl);
+    }
+    
+    /**
+     * Попадания/промахи локального кеша (cache.* с тегом cache=blob.local) и его занятый объем
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, index, "blob.local");
+        Gauge.builder("blob.local.cache.size", index,
+                cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L) * 1024)
+            .baseUnit("bytes")
+            .description("Объем файлов в локальном кеше хранилища")
+            .register(registry);
+    }
+    
+    @Override
+    public void close() {
+        evictionScheduler.shutdownNow();
+    }
+    
+    private Path download(String key) {
+        try {
+            // Файл, вытесненный недавно и еще не удаленный, возвращаем в кеш без скачивания
+            if (files.stat(key).isPresent()) {
+                return files.localFile(key).get();
+            }
+            Optional<InputStream> remote = delegate.get(key);
+            if (remote.isEmpty()) {
+                return null;
+            }
+            try (InputStream content = remote.get()) {
+                files.put(key, content, -1, null, null);
+            }
+            logger.debug("Объект {} скачан в локальный кеш", key);
+            return files.localFile(key).get();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void scheduleDelete(String key) {
+        evictionScheduler.schedule(() -> {
+            // За время задержки ключ мог снова попасть в кеш - тогда файл нужен.
+            // compute блокирует параллельную загрузку того же ключа на время проверки и удаления.
+            index.asMap().compute(key, (cachedKey, path) -> {
+                if (path == null) {
+                    deleteCachedFile(cachedKey);
+                }
+                return path;
+            });
+        }, EVICTION_GRACE.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    private void deleteCachedFile(String key) {
+        try {
+            files.delete(key);
+        } catch (IOException e) {
+            logger.warn("Не удалось удалить файл кеша {}: {}", key, e.getMessage());
+        }
+    }
+    
+    private static int weightOf(Path path) {
+        try {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(1, (Files.size(path) + 1023) / 1024));
+        } catch (IOException e) {
+            return 1;
+        }
+    }
+}
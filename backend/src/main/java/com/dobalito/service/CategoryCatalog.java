@@ -0,0 +1,171 @@
+package com.dobalito.service;
+
+import com.dobalito.dto.CategoryResponse;
+import com.dobalito.entity.Category;
+import com.dobalito.repository.CategoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Справочник категорий в памяти приложения.
+ * Хранит списки всех и активных категорий вместе с готовыми CategoryResponse для каждого языка.
+ * Снимок пересобирается целиком и подменяется атомарно после изменений категорий через CategoryService,
+ * а также по истечении max-age (на случай изменений с других инстансов).
+ */
+@Component
+public class CategoryCatalog {
+    
+    private static final List<String> LANGUAGES = List.of("ru", "en");
+    private static final String DEFAULT_LANGUAGE = "ru";
+    
+    private final CategoryRepository categoryRepository;
+    private final long maxAgeMillis;
+    
+    private volatile Snapshot snapshot;
+    
+    public CategoryCatalog(CategoryRepository categoryRepository,
+                           @Value("${categories.catalog.max-age:5m}") Duration maxAge) {
+        this.categoryRepository = categoryRepository;
+        this.maxAgeMillis = maxAge.toMillis();
+    }
+    
+    /**
+     * Все категории
+     */
+    public List<Category> getAllCategories() {
+        return currentSnapshot().all;
+    }
+    
+    /**
+     * Активные категории
+     */
+    public List<Category> getActiveCategories() {
+        return currentSnapshot().active;
+    }
+    
+    /**
+     * Готовое представление списка категорий для языка с ETag
+     */
+    public View getView(boolean activeOnly, String language) {
+        Snapshot current = currentSnapshot();
+        String lang = LANGUAGES.contains(language) ? language : DEFAULT_LANGUAGE;
+        List<CategoryResponse> items = activeOnly ? current.activeViews.get(lang) : current.allViews.get(lang);
+        String etag = "\"" + current.version + "-" + (activeOnly ? "active" : "all") + "-" + lang + "\"";
+        return new View(items, etag);
+    }
+    
+    /**
+     * Пересобрать справочник из БД и атомарно подменить снимок
+     */
+    public synchronized void refresh() {
+        List<Category> all = categoryRepository.findAll().stream()
+            .sorted(Comparator.comparing(Category::getId))
+            .toList();
+        List<Category> active = all.stream()
+            .filter(category -> Boolean.TRUE.equals(category.getIsActive()))
+            .toList();
+        
+        this.snapshot = new Snapshot(
+            all,
+            active,
+            buildViews(all),
+            buildViews(active),
+            computeVersion(all),
+            System.currentTimeMillis()
+        );
+    }
+    
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null || System.currentTimeMillis() - current.builtAt > maxAgeMillis) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || System.currentTimeMillis() - current.builtAt > maxAgeMillis) {
+                    refresh();
+                    current = snapshot;
+                }
+            }
+        }
+        return current;
+    }
+    
+    private Map<String, List<CategoryResponse>> buildViews(List<Category> categories) {
+        return LANGUAGES.stream().collect(Collectors.toUnmodifiableMap(
+            lang -> lang,
+            lang -> categories.stream()
+                .map(category -> CategoryResponse.from(category, lang))
+                .toList()
+        ));
+    }
+    
+    /**
+     * Версия снимка - хеш содержимого, одинаковый на всех инстансах для одинаковых данных
+     */
+    private String computeVersion(List<Category> categories) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Category category : categories) {
+                String row = category.getId() + "|" + category.getName() + "|" + category.getEnglishName() + "|"
+                    + category.getDescription() + "|" + category.getIcon() + "|" + category.getColor() + "|"
+                    + category.getIsActive() + "|" + category.getUpdatedAt() + "\n";
+                digest.update(row.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    /**
+     * Список категорий для ответа и его ETag
+     */
+    public static class View {
+        
+        private final List<CategoryResponse> items;
+        private final String etag;
+        
+        View(List<CategoryResponse> items, String etag) {
+            this.items = items;
+            this.etag = etag;
+        }
+        
+        public List<CategoryResponse> getItems() {
+            return items;
+        }
+        
+        public String getEtag() {
+            return etag;
+        }
+    }
+    
+    private static class Snapshot {
+        
+        private final List<Category> all;
+        private final List<Category> active;
+        private final Map<String, List<CategoryResponse>> allViews;
+        private final Map<String, List<CategoryResponse>> activeViews;
+        private final String version;
+        private final long builtAt;
+        
+        Snapshot(List<Category> all, List<Category> active,
+                 Map<String, List<CategoryResponse>> allViews, Map<String, List<CategoryResponse>> activeViews,
+                 String version, long builtAt) {
+            this.all = all;
+            this.active = active;
+            this.allViews = allViews;
+            this.activeViews = activeViews;
+            this.version = version;
+            this.builtAt = builtAt;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.dobalito.service;
 
+import com.dobalito.config.MetricsConfig;
 import com.dobalito.entity.Category;
 import com.dobalito.repository.CategoryRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -9,23 +11,37 @@ import java.util.List;
 import java.util.Optional;
 
 @Service
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class CategoryService {
     
     @Autowired
     private CategoryRepository categoryRepository;
     
+    @Autowired
+    private CategoryCatalog categoryCatalog;
+    
+    @Autowired
+    private SearchService searchService;
+    
     /**
      * Получить все категории
      */
     public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+        return categoryCatalog.getAllCategories();
     }
     
     /**
      * Получить все активные категории
      */
     public List<Category> getActiveCategories() {
-        return categoryRepository.findByIsActiveTrue();
+        return categoryCatalog.getActiveCategories();
+    }
+    
+    /**
+     * Получить готовый список категорий для ответа API на нужном языке вместе с ETag
+     */
+    public CategoryCatalog.View getCategoryView(boolean activeOnly, String language) {
+        return categoryCatalog.getView(activeOnly, language);
     }
     
     /**
@@ -46,7 +62,9 @@ public class CategoryService {
      * Создать новую категорию
      */
     public Category createCategory(Category category) {
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        categoryCatalog.refresh();
+        return savedCategory;
     }
     
     /**
@@ -63,7 +81,9 @@ public class CategoryService {
             if (categoryDetails.getIsActive() != null) {
                 category.setIsActive(categoryDetails.getIsActive());
             }
-            return categoryRepository.save(category);
+            Category savedCategory = categoryRepository.save(category);
+            categoryCatalog.refresh();
+            return savedCategory;
         }
         return null;
     }
@@ -77,6 +97,7 @@ public class CategoryService {
             Category category = optionalCategory.get();
             category.setIsActive(false);
             categoryRepository.save(category);
+            categoryCatalog.refresh();
             return true;
         }
         return false;
@@ -91,6 +112,7 @@ public class CategoryService {
             Category category = optionalCategory.get();
             category.setIsActive(true);
             categoryRepository.save(category);
+            categoryCatalog.refresh();
             return true;
         }
         return false;
@@ -102,23 +124,24 @@ public class CategoryService {
     public boolean deleteCategory(Long id) {
         if (categoryRepository.existsById(id)) {
             categoryRepository.deleteById(id);
+            categoryCatalog.refresh();
             return true;
         }
         return false;
     }
     
     /**
-     * Поиск категорий по имени или описанию
+     * Поиск категорий по имени или описанию (нечеткий, лучшие совпадения первыми)
      */
-    public List<Category> searchCategories(String searchTerm) {
-        return categoryRepository.findByNameOrDescriptionContaining(searchTerm);
+    public List<Category> searchCategories(String searchTerm, Integer limit) {
+        return searchService.searchCategories(searchTerm, false, limit);
     }
     
     /**
-     * Поиск активных категорий по имени или описанию
+     * Поиск активных категорий по имени или описанию (нечеткий, лучшие совпадения первыми)
      */
-    public List<Category> searchActiveCategories(String searchTerm) {
-        return categoryRepository.findActiveByNameOrDescriptionContaining(searchTerm);
+    public List<Category> searchActiveCategories(String searchTerm, Integer limit) {
+        return searchService.searchCategories(searchTerm, true, limit);
     }
     
     /**
@@ -0,0 +1,127 @@
+package com.dobalito.service;
+
+import com.dobalito.entity.PhoneVerificationCode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Коды верификации в памяти приложения (по умолчанию).
+ * Один код на номер, истекшие записи удаляются при обращении и плановой очисткой.
+ * Подходит для одного инстанса: при нескольких инстансах нужен verification.code-store=jpa.
+ */
+@Component
+@ConditionalOnProperty(name = "verification.code-store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryVerificationCodeStore implements VerificationCodeStore {
+    
+    private final Map<String, Entry> codes = new ConcurrentHashMap<>();
+    
+    @Override
+    public PhoneVerificationCode issue(String phone, String code, LocalDateTime expiresAt) {
+        Entry entry = new Entry(phone, code, LocalDateTime.now(), expiresAt);
+        // Новый код заменяет предыдущий целиком
+        codes.put(phone, entry);
+        return entry.toCode();
+    }
+    
+    @Override
+    public Optional<PhoneVerificationCode> findActive(String phone, LocalDateTime now) {
+        return activeEntry(phone, now).map(Entry::toCode);
+    }
+    
+    @Override
+    public boolean matches(String phone, String code, LocalDateTime now) {
+        return activeEntry(phone, now)
+            .map(entry -> entry.matches(code))
+            .orElse(false);
+    }
+    
+    @Override
+    public boolean consume(String phone, String code, LocalDateTime now) {
+        Optional<Entry> active = activeEntry(phone, now);
+        if (active.isEmpty()) {
+            return false;
+        }
+        
+        Entry entry = active.get();
+        // Попытка засчитывается до сравнения одним атомарным шагом: параллельные неверные коды
+        // не проходят проверку лимита одновременно и не получают больше MAX_ATTEMPTS попыток
+        if (entry.attempts.incrementAndGet() > PhoneVerificationCode.MAX_ATTEMPTS) {
+            codes.remove(phone, entry);
+            return false;
+        }
+        if (!entry.matches(code)) {
+            return false;
+        }
+        
+        // Одноразовость: из параллельных запросов с верным кодом проходит только один
+        if (!entry.used.compareAndSet(false, true)) {
+            return false;
+        }
+        codes.remove(phone, entry);
+        return true;
+    }
+    
+    @Override
+    public int purgeExpired(LocalDateTime now) {
+        int sizeBefore = codes.size();
+        codes.values().removeIf(entry -> !entry.isActive(now));
+        return Math.max(0, sizeBefore - codes.size());
+    }
+    
+    private Optional<Entry> activeEntry(String phone, LocalDateTime now) {
+        Entry entry = codes.get(phone);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (!entry.isActive(now)) {
+            codes.remove(phone, entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry);
+    }
+    
+    private static class Entry {
+        
+        private final String phone;
+        private final String code;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime expiresAt;
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final AtomicBoolean used = new AtomicBoolean();
+        
+        Entry(String phone, String code, LocalDateTime createdAt, LocalDateTime expiresAt) {
+            this.phone = phone;
+            this.code = code;
+            this.createdAt = createdAt;
+            this.expiresAt = expiresAt;
+        }
+        
+        boolean isActive(LocalDateTime now) {
+            return !used.get() && expiresAt.isAfter(now) && attempts.get() < PhoneVerificationCode.MAX_ATTEMPTS;
+        }
+        
+        boolean matches(String candidate) {
+            // Сравнение за постоянное время, чтобы не подсказывать код по времени ответа
+            return candidate != null && MessageDigest.isEqual(
+                code.getBytes(StandardCharsets.UTF_8), candidate.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        PhoneVerificationCode toCode() {
+            PhoneVerificationCode snapshot = new PhoneVerificationCode(phone, code);
+            snapshot.setCreatedAt(createdAt);
+            snapshot.setExpiresAt(expiresAt);
+            snapshot.setIsUsed(used.get());
+            snapshot.setAttempts(attempts.get());
+            return snapshot;
+        }
+    }
+}
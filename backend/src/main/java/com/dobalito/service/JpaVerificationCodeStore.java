@@ -0,0 +1,62 @@
+package com.dobalito.service;
+
+import com.dobalito.entity.PhoneVerificationCode;
+import com.dobalito.repository.PhoneVerificationCodeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Коды верификации в таблице phone_verification_codes (verification.code-store=jpa).
+ * Нужен, когда инстансов несколько. Все изменения - одиночные UPDATE/DELETE без чтения строк.
+ */
+@Component
+@ConditionalOnProperty(name = "verification.code-store", havingValue = "jpa")
+public class JpaVerificationCodeStore implements VerificationCodeStore {
+    
+    @Autowired
+    private PhoneVerificationCodeRepository codeRepository;
+    
+    @Override
+    @Transactional
+    public PhoneVerificationCode issue(String phone, String code, LocalDateTime expiresAt) {
+        codeRepository.deactivateActiveCodes(phone);
+        
+        PhoneVerificationCode verificationCode = new PhoneVerificationCode(phone, code);
+        verificationCode.setExpiresAt(expiresAt);
+        return codeRepository.save(verificationCode);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<PhoneVerificationCode> findActive(String phone, LocalDateTime now) {
+        return codeRepository.findActiveCodeByPhone(phone, now);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public boolean matches(String phone, String code, LocalDateTime now) {
+        return codeRepository.findByPhoneAndCode(phone, code, now).isPresent();
+    }
+    
+    @Override
+    @Transactional
+    public boolean consume(String phone, String code, LocalDateTime now) {
+        // Условный UPDATE: из параллельных запросов строку изменит только один
+        if (codeRepository.markUsed(phone, code, now) == 1) {
+            return true;
+        }
+        codeRepository.incrementAttempts(phone, now);
+        return false;
+    }
+    
+    @Override
+    @Transactional
+    public int purgeExpired(LocalDateTime now) {
+        return codeRepository.deleteExpiredCodes(now);
+    }
+}
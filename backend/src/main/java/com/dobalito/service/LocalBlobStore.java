@@ -0,0 +1,126 @@
+package com.dobalito.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище в директории на локальном диске: ключ - относительный путь файла.
+ * Подходит для одного экземпляра приложения (или общего тома у нескольких).
+ */
+public class LocalBlobStore implements BlobStore {
+    
+    private static final String TEMP_SUFFIX = ".tmp";
+    
+    private final Path root;
+    
+    public LocalBlobStore(Path root) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        Files.createDirectories(this.root);
+    }
+    
+    @Override
+    public String getName() {
+        return "local:" + root;
+    }
+    
+    /**
+     * Запись через временный файл и атомарное переименование: читатели не видят недописанный файл
+     */
+    @Override
+    public void put(String key, InputStream content, long length, String contentType, String cacheControl) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Параллельная запись того же ключа уже создала файл
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    @Override
+    public Optional<InputStream> get(String key) throws IOException {
+        try {
+            return Optional.of(Files.newInputStream(resolve(key)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+    
+    @Override
+    public Optional<BlobMetadata> stat(String key) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(resolve(key), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        if (!attributes.isRegularFile()) {
+            return Optional.empty();
+        }
+        return Optional.of(new BlobMetadata(key, attributes.size(), attributes.lastModifiedTime().toMillis()));
+    }
+    
+    @Override
+    public void touch(String key) throws IOException {
+        // NoSuchFileException доходит до вызывающего: файл нужно записать заново
+        Files.setLastModifiedTime(resolve(key), FileTime.fromMillis(System.currentTimeMillis()));
+    }
+    
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+    
+    @Override
+    public Stream<BlobMetadata> list(String prefix) throws IOException {
+        Path directory = resolve(prefix.isEmpty() ? "." : prefix);
+        if (!Files.isDirectory(directory)) {
+            return Stream.empty();
+        }
+        return Files.walk(directory)
+            .filter(Files::isRegularFile)
+            .map(path -> {
+                try {
+                    return new BlobMetadata(keyOf(path), Files.size(path), Files.getLastModifiedTime(path).toMillis());
+                } catch (IOException e) {
+                    // Файл удален во время обхода
+                    return null;
+                }
+            })
+            .filter(metadata -> metadata != null);
+    }
+    
+    /**
+     * Путь к файлу без проверки существования: отдача файла по закешированным метаданным не делает stat
+     */
+    @Override
+    public Optional<Path> localFile(String key) {
+        return Optional.of(resolve(key));
+    }
+    
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        // Защита от path traversal: ключ не может указывать за пределы корня
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Invalid key: " + key);
+        }
+        return path;
+    }
+    
+    private String keyOf(Path path) {
+        return root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+    }
+}
@@ -0,0 +1,39 @@
+package com.dobalito.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Заглушка провайдера SMS: только пишет сообщения в лог.
+ * Используется по умолчанию (sms.gateway=logging) локально и в тестах.
+ */
+@Component
+@ConditionalOnProperty(name = "sms.gateway", havingValue = "logging", matchIfMissing = true)
+public class LoggingSmsGateway implements SmsGateway {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LoggingSmsGateway.class);
+    
+    @Override
+    public String getName() {
+        return "logging";
+    }
+    
+    @Override
+    public int getMaxBatchSize() {
+        return 50;
+    }
+    
+    @Override
+    public void sendBatch(List<SmsMessage> messages) {
+        for (SmsMessage message : messages) {
+            logger.info("=== SMS ОТПРАВКА (ИМИТАЦИЯ) ===");
+            logger.info("Номер телефона: {}", message.getPhone());
+            logger.info("Сообщение: {}", message.getText());
+            logger.info("================================");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.dobalito.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Выгрузка списков в формате NDJSON (один JSON объект на строку).
+ * Строки читаются из БД курсором (Stream из репозитория с fetch size) и сразу пишутся в ответ,
+ * persistence context периодически очищается - память не растет с размером выгрузки.
+ */
+@Service
+public class NdjsonExportService {
+    
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
+    // Как часто отсоединять уже выгруженные сущности от persistence context
+    private static final int CLEAR_INTERVAL = 500;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    /**
+     * Ответ, который выполняет запрос в read-only транзакции и построчно стримит результат клиенту
+     */
+    public <T> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<T>> query) {
+        StreamingResponseBody body = outputStream -> {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setReadOnly(true);
+            transaction.executeWithoutResult(status -> {
+                try (Stream<T> items = query.get()) {
+                    int[] written = {0};
+                    items.forEach(item -> {
+                        writeLine(outputStream, item);
+                        if (++written[0] % CLEAR_INTERVAL == 0) {
+                            entityManager.clear();
+                        }
+                    });
+                }
+            });
+            outputStream.flush();
+        };
+        
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(body);
+    }
+    
+    private void writeLine(OutputStream outputStream, Object item) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(item));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
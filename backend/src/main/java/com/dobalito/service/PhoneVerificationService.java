@@ -1,116 +1,84 @@
 package com.dobalito.service;
 
+import com.dobalito.config.MetricsConfig;
 import com.dobalito.entity.PhoneVerificationCode;
-import com.dobalito.repository.PhoneVerificationCodeRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Optional;
-import java.util.Random;
 
 @Service
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class PhoneVerificationService {
     
+    private static final Logger logger = LoggerFactory.getLogger(PhoneVerificationService.class);
+    
     @Autowired
-    private PhoneVerificationCodeRepository codeRepository;
+    private VerificationCodeStore codeStore;
     
     private static final int CODE_LENGTH = 6;
     private static final int CODE_EXPIRY_MINUTES = 10;
     
+    private final SecureRandom random = new SecureRandom();
+    
     /**
-     * Генерирует и сохраняет код верификации для номера телефона
+     * Генерирует и сохраняет код верификации для номера телефона (предыдущие коды гасятся)
      */
     public PhoneVerificationCode generateVerificationCode(String phone) {
-        // Деактивируем предыдущие коды для этого номера
-        deactivatePreviousCodes(phone);
-        
-        // Генерируем новый код
         String code = generateRandomCode();
-        
-        // Создаем и сохраняем код
-        PhoneVerificationCode verificationCode = new PhoneVerificationCode(phone, code);
-        verificationCode.setExpiresAt(LocalDateTime.now().plusMinutes(CODE_EXPIRY_MINUTES));
-        
-        return codeRepository.save(verificationCode);
+        return codeStore.issue(phone, code, LocalDateTime.now().plusMinutes(CODE_EXPIRY_MINUTES));
     }
     
     /**
      * Проверяет код верификации без его использования (для предварительной проверки)
      */
     public boolean checkCodeWithoutUsing(String phone, String code) {
-        LocalDateTime now = LocalDateTime.now();
-        Optional<PhoneVerificationCode> codeOptional = codeRepository.findByPhoneAndCode(phone, code, now);
-        
-        if (codeOptional.isEmpty()) {
-            return false;
-        }
-        
-        PhoneVerificationCode verificationCode = codeOptional.get();
-        
-        // Проверяем валидность кода без его использования
-        return verificationCode.isValid();
+        return codeStore.matches(phone, code, LocalDateTime.now());
     }
     
     /**
-     * Проверяет код верификации
+     * Проверяет и использует код верификации (одноразово).
+     * Неверный код расходует одну из попыток действующего кода.
      */
     public boolean verifyCode(String phone, String code) {
-        LocalDateTime now = LocalDateTime.now();
-        Optional<PhoneVerificationCode> codeOptional = codeRepository.findByPhoneAndCode(phone, code, now);
-        
-        if (codeOptional.isEmpty()) {
-            return false;
-        }
-        
-        PhoneVerificationCode verificationCode = codeOptional.get();
-        
-        // Проверяем валидность кода
-        if (!verificationCode.isValid()) {
-            // Увеличиваем счетчик попыток
-            verificationCode.incrementAttempts();
-            codeRepository.save(verificationCode);
-            return false;
-        }
-        
-        // Помечаем код как использованный
-        verificationCode.setIsUsed(true);
-        codeRepository.save(verificationCode);
-        
-        return true;
+        return codeStore.consume(phone, code, LocalDateTime.now());
     }
     
     /**
      * Проверяет, есть ли активный код для номера телефона
      */
     public boolean hasActiveCode(String phone) {
-        LocalDateTime now = LocalDateTime.now();
-        Optional<PhoneVerificationCode> activeCode = codeRepository.findActiveCodeByPhone(phone, now);
-        return activeCode.isPresent();
+        return codeStore.findActive(phone, LocalDateTime.now()).isPresent();
     }
     
     /**
      * Получает активный код для номера телефона
      */
     public Optional<PhoneVerificationCode> getActiveCode(String phone) {
-        LocalDateTime now = LocalDateTime.now();
-        return codeRepository.findActiveCodeByPhone(phone, now);
+        return codeStore.findActive(phone, LocalDateTime.now());
     }
     
     /**
-     * Очищает истекшие коды
+     * Очищает истекшие коды (по расписанию verification.purge-interval)
      */
+    @Scheduled(fixedDelayString = "${verification.purge-interval:PT5M}")
     public void cleanupExpiredCodes() {
-        LocalDateTime now = LocalDateTime.now();
-        codeRepository.deleteExpiredCodes(now);
+        int purged = codeStore.purgeExpired(LocalDateTime.now());
+        if (purged > 0) {
+            logger.debug("Удалено истекших кодов верификации: {}", purged);
+        }
     }
     
     /**
      * Генерирует случайный 6-значный код
      */
     private String generateRandomCode() {
-        Random random = new Random();
         StringBuilder code = new StringBuilder();
         
         for (int i = 0; i < CODE_LENGTH; i++) {
@@ -120,20 +88,6 @@ public class PhoneVerificationService {
         return code.toString();
     }
     
-    /**
-     * Деактивирует предыдущие коды для номера телефона
-     */
-    private void deactivatePreviousCodes(String phone) {
-        List<PhoneVerificationCode> previousCodes = codeRepository.findByPhoneOrderByCreatedAtDesc(phone);
-        
-        for (PhoneVerificationCode code : previousCodes) {
-            if (!code.getIsUsed()) {
-                code.setIsUsed(true);
-                codeRepository.save(code);
-            }
-        }
-    }
-    
     /**
      * Проверяет формат номера телефона
      */
@@ -0,0 +1,104 @@
+package com.dobalito.service;
+
+import com.dobalito.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Кеш аутентифицированных пользователей по userId из JWT.
+ * Убирает запрос пользователя (и join категорий) из каждого API вызова.
+ * Записи сбрасываются UserService при изменении пользователя и по TTL.
+ */
+@Component
+public class PrincipalCache implements MeterBinder {
+    
+    private final Cache<Long, User> cache;
+    
+    public PrincipalCache(@Value("${auth.principal-cache.max-size:10000}") long maxSize,
+                          @Value("${auth.principal-cache.ttl:5m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+    
+    /**
+     * Получить пользователя из кеша или загрузить через loader.
+     * Загрузка идет внутри кеша: invalidate во время загрузки дожидается ее и удаляет результат,
+     * поэтому загруженная до изменения копия не переживает сброс.
+     * Запись из кеша используется, только если телефон в ней совпадает с телефоном из токена.
+     */
+    public Optional<User> getOrLoad(Long userId, String phone, Supplier<Optional<User>> loader) {
+        if (userId == null) {
+            // Старые токены без userId - кешировать не по чему
+            return loader.get();
+        }
+        
+        User cached = cache.get(userId, id -> loader.get()
+                .filter(user -> id.equals(user.getId()))
+                .orElse(null));
+        if (cached == null) {
+            // Пользователь удален или телефон из токена принадлежит другому пользователю
+            return Optional.empty();
+        }
+        if (phone != null && phone.equals(cached.getPhone())) {
+            return Optional.of(cached);
+        }
+        
+        // Телефон в токене не совпал с записью: проверяем по БД и заменяем запись, только если ее не сбросили
+        Optional<User> loaded = loader.get().filter(user -> userId.equals(user.getId()));
+        loaded.ifPresent(user -> cache.asMap().replace(userId, cached, user));
+        return loaded;
+    }
+    
+    /**
+     * Сбросить закешированного пользователя
+     */
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            cache.invalidate(userId);
+        }
+    }
+    
+    /**
+     * Сбросить весь кеш
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+    
+    /**
+     * Попадания/промахи/вытеснения в метриках cache.* с тегом cache=principal
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "principal");
+    }
+    
+    /**
+     * Статистика попаданий/промахов
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+}
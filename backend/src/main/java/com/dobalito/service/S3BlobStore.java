@@ -0,0 +1,196 @@
+package com.dobalito.service;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище в S3 совместимом бакете (AWS S3, MinIO). Ключ объекта - prefix + ключ BlobStore.
+ * Локальных файлов не дает: отдача идет по подписанным ссылкам или через CachingBlobStore.
+ * Ошибки SDK (непроверяемые) превращаются в IOException, как у локального хранилища.
+ */
+public class S3BlobStore implements BlobStore {
+    
+    private static final int NOT_FOUND = 404;
+    
+    private final S3Client client;
+    private final S3Presigner presigner;
+    private final String bucket;
+    private final String prefix;
+    
+    /**
+     * presigner - null, если чтение по подписанным ссылкам отключено
+     */
+    public S3BlobStore(S3Client client, S3Presigner presigner, String bucket, String prefix) {
+        this.client = client;
+        this.presigner = presigner;
+        this.bucket = bucket;
+        this.prefix = prefix;
+    }
+    
+    @Override
+    public String getName() {
+        return "s3:" + bucket + "/" + prefix;
+    }
+    
+    /**
+     * Создать бакет, если его нет (для MinIO в локальном окружении)
+     */
+    public void createBucketIfMissing() throws IOException {
+        try {
+            client.headBucket(request -> request.bucket(bucket));
+        } catch (S3Exception e) {
+            if (e.statusCode() != NOT_FOUND) {
+                throw new IOException("S3 headBucket failed: " + e.getMessage(), e);
+            }
+            try {
+                client.createBucket(request -> request.bucket(bucket));
+            } catch (SdkException createError) {
+                throw new IOException("S3 createBucket failed: " + createError.getMessage(), createError);
+            }
+        } catch (SdkException e) {
+            throw new IOException("S3 headBucket failed: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Объект в S3 появляется атомарно после завершения PUT
+     */
+    @Override
+    public void put(String key, InputStream content, long length, String contentType, String cacheControl) throws IOException {
+        try {
+            client.putObject(request -> request.bucket(bucket).key(prefix + key)
+                    .contentType(contentType)
+                    .cacheControl(cacheControl)
+                    .contentLength(length),
+                RequestBody.fromInputStream(content, length));
+        } catch (SdkException e) {
+            throw new IOException("S3 putObject failed for " + key + ": " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public Optional<InputStream> get(String key) throws IOException {
+        try {
+            return Optional.of(client.getObject(request -> request.bucket(bucket).key(prefix + key)));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (SdkException e) {
+            throw new IOException("S3 getObject failed for " + key + ": " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public Optional<BlobMetadata> stat(String key) throws IOException {
+        return head(key).map(head -> new BlobMetadata(key, head.contentLength(), head.lastModified().toEpochMilli()));
+    }
+    
+    /**
+     * Время изменения в S3 обновляется только перезаписью: копируем объект сам в себя с теми же заголовками
+     */
+    @Override
+    public void touch(String key) throws IOException {
+        Optional<HeadObjectResponse> head = head(key);
+        if (head.isEmpty()) {
+            throw new NoSuchFileException(key);
+        }
+        try {
+            client.copyObject(request -> request
+                .sourceBucket(bucket).sourceKey(prefix + key)
+                .destinationBucket(bucket).destinationKey(prefix + key)
+                .metadataDirective(MetadataDirective.REPLACE)
+                .contentType(head.get().contentType())
+                .cacheControl(head.get().cacheControl())
+                .metadata(head.get().metadata()));
+        } catch (NoSuchKeyException e) {
+            // Удален между HEAD и копированием
+            throw new NoSuchFileException(key);
+        } catch (SdkException e) {
+            throw new IOException("S3 copyObject failed for " + key + ": " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            client.deleteObject(request -> request.bucket(bucket).key(prefix + key));
+        } catch (SdkException e) {
+            throw new IOException("S3 deleteObject failed for " + key + ": " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Листинг постранично (по 1000 объектов): следующая страница запрашивается по мере чтения потока
+     */
+    @Override
+    public Stream<BlobMetadata> list(String keyPrefix) throws IOException {
+        try {
+            return client.listObjectsV2Paginator(request -> request.bucket(bucket).prefix(prefix + keyPrefix))
+                .contents()
+                .stream()
+                .map(object -> new BlobMetadata(object.key().substring(prefix.length()),
+                    object.size(), object.lastModified().toEpochMilli()));
+        } catch (SdkException e) {
+            throw new IOException("S3 listObjectsV2 failed: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public Optional<Path> localFile(String key) {
+        return Optional.empty();
+    }
+    
+    @Override
+    public boolean supportsPresignedUrls() {
+        return presigner != null;
+    }
+    
+    /**
+     * Подпись считается локально, без запроса к S3
+     */
+    @Override
+    public Optional<URI> presignedUrl(String key, Duration ttl) {
+        if (presigner == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(presigner.presignGetObject(request -> request
+                    .signatureDuration(ttl)
+                    .getObjectRequest(object -> object.bucket(bucket).key(prefix + key)))
+                .url().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Invalid presigned URL for " + key, e);
+        }
+    }
+    
+    private Optional<HeadObjectResponse> head(String key) throws IOException {
+        try {
+            return Optional.of(client.headObject(request -> request.bucket(bucket).key(prefix + key)));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            // HEAD без тела: отсутствие объекта приходит как S3Exception с кодом 404
+            if (e.statusCode() == NOT_FOUND) {
+                return Optional.empty();
+            }
+            throw new IOException("S3 headObject failed for " + key + ": " + e.getMessage(), e);
+        } catch (SdkException e) {
+            throw new IOException("S3 headObject failed for " + key + ": " + e.getMessage(), e);
+        }
+    }
+}
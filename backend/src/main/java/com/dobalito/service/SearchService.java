@@ -0,0 +1,88 @@
+package com.dobalito.service;
+
+import com.dobalito.entity.Category;
+import com.dobalito.entity.User;
+import com.dobalito.repository.CategoryRepository;
+import com.dobalito.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Нечеткий поиск пользователей и категорий (автодополнение) на pg_trgm индексах.
+ * Слишком короткие запросы не выполняются, количество результатов ограничено.
+ */
+@Service
+@Transactional(readOnly = true)
+public class SearchService {
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
+    @Value("${search.min-query-length:2}")
+    private int minQueryLength;
+    
+    @Value("${search.default-limit:20}")
+    private int defaultLimit;
+    
+    @Value("${search.max-limit:50}")
+    private int maxLimit;
+    
+    /**
+     * Поиск пользователей по имени или email
+     */
+    public List<User> searchUsers(String query, Integer limit) {
+        String normalized = normalize(query);
+        if (normalized == null) {
+            return List.of();
+        }
+        return userRepository.searchByTrigram(normalized, likePattern(normalized), resolveLimit(limit));
+    }
+    
+    /**
+     * Поиск категорий по имени, английскому имени или описанию
+     */
+    public List<Category> searchCategories(String query, boolean activeOnly, Integer limit) {
+        String normalized = normalize(query);
+        if (normalized == null) {
+            return List.of();
+        }
+        return categoryRepository.searchByTrigram(normalized, likePattern(normalized), activeOnly, resolveLimit(limit));
+    }
+    
+    /**
+     * Приводит запрос к нижнему регистру; null, если он короче минимальной длины
+     */
+    private String normalize(String query) {
+        if (query == null) {
+            return null;
+        }
+        String normalized = query.trim().toLowerCase(Locale.ROOT);
+        return normalized.length() < minQueryLength ? null : normalized;
+    }
+    
+    private int resolveLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultLimit;
+        }
+        return Math.min(limit, maxLimit);
+    }
+    
+    /**
+     * Шаблон LIKE '%query%' с экранированием спецсимволов (\ - escape-символ по умолчанию в PostgreSQL)
+     */
+    private String likePattern(String query) {
+        String escaped = query
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
@@ -0,0 +1,231 @@
+package com.dobalito.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Асинхронная отправка SMS.
+ * Сообщения кладутся в ограниченную очередь и сразу возвращают управление вызывающему потоку (HTTP запросу).
+ * Рабочие потоки забирают сообщения пачками до getMaxBatchSize() провайдера и отправляют через SmsGateway.
+ * Неудачная пачка повторяется с экспоненциальной задержкой, после max-attempts сообщения отбрасываются.
+ */
+@Component
+public class SmsDispatcher implements MeterBinder {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SmsDispatcher.class);
+    
+    private final SmsGateway gateway;
+    private final BlockingQueue<SmsMessage> queue;
+    private final int workers;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long shutdownTimeoutMillis;
+    
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicInteger pendingRetries = new AtomicInteger();
+    
+    private ExecutorService workerPool;
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean running;
+    
+    public SmsDispatcher(SmsGateway gateway,
+                         @Value("${sms.queue-capacity:1000}") int queueCapacity,
+                         @Value("${sms.workers:2}") int workers,
+                         @Value("${sms.retry.max-attempts:5}") int maxAttempts,
+                         @Value("${sms.retry.initial-backoff:1s}") Duration initialBackoff,
+                         @Value("${sms.retry.max-backoff:1m}") Duration maxBackoff,
+                         @Value("${sms.shutdown-timeout:10s}") Duration shutdownTimeout) {
+        this.gateway = gateway;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workers = workers;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+        this.shutdownTimeoutMillis = shutdownTimeout.toMillis();
+    }
+    
+    @PostConstruct
+    public void start() {
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers,
+            runnable -> new Thread(runnable, "sms-worker-" + threadNumber.incrementAndGet()));
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sms-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::runWorker);
+        }
+        logger.info("SMS dispatcher started: gateway={}, workers={}, queueCapacity={}",
+            gateway.getName(), workers, queue.remainingCapacity());
+    }
+    
+    /**
+     * Поставить SMS в очередь на отправку.
+     * Не блокируется: если очередь заполнена, возвращает false.
+     */
+    public boolean enqueue(String phone, String text) {
+        if (!running) {
+            return false;
+        }
+        boolean accepted = queue.offer(new SmsMessage(phone, text));
+        if (!accepted) {
+            dropped.incrementAndGet();
+            logger.warn("SMS queue is full, message to {} rejected", phone);
+        }
+        return accepted;
+    }
+    
+    public boolean isRunning() {
+        return running;
+    }
+    
+    /**
+     * Сообщений в очереди
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+    
+    /**
+     * Сообщений, ожидающих повторной попытки
+     */
+    public int getPendingRetries() {
+        return pendingRetries.get();
+    }
+    
+    public long getSentCount() {
+        return sent.get();
+    }
+    
+    public long getRetriedCount() {
+        return retried.get();
+    }
+    
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+    
+    /**
+     * Глубина очереди и счетчики отправки в метриках sms.*
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sms.queue.size", this, SmsDispatcher::getQueueSize)
+            .description("SMS в очереди на отправку")
+            .register(registry);
+        Gauge.builder("sms.queue.remaining", queue, BlockingQueue::remainingCapacity)
+            .description("Свободные места в очереди SMS")
+            .register(registry);
+        Gauge.builder("sms.retry.pending", this, SmsDispatcher::getPendingRetries)
+            .description("SMS, ожидающие повторной попытки")
+            .register(registry);
+        FunctionCounter.builder("sms.sent", sent, AtomicLong::get).register(registry);
+        FunctionCounter.builder("sms.retried", retried, AtomicLong::get).register(registry);
+        FunctionCounter.builder("sms.dropped", dropped, AtomicLong::get).register(registry);
+    }
+    
+    private void runWorker() {
+        int maxBatchSize = Math.max(1, gateway.getMaxBatchSize());
+        List<SmsMessage> batch = new ArrayList<>(maxBatchSize);
+        // После остановки дорабатываем то, что уже в очереди
+        while (running || !queue.isEmpty()) {
+            try {
+                SmsMessage first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void sendBatch(List<SmsMessage> batch) {
+        try {
+            gateway.sendBatch(batch);
+            sent.addAndGet(batch.size());
+        } catch (Exception e) {
+            logger.warn("SMS gateway {} failed to send batch of {}: {}", gateway.getName(), batch.size(), e.getMessage());
+            for (SmsMessage message : batch) {
+                scheduleRetry(message);
+            }
+        }
+    }
+    
+    private void scheduleRetry(SmsMessage message) {
+        if (message.getAttempt() >= maxAttempts || !running) {
+            dropped.incrementAndGet();
+            logger.error("SMS to {} dropped after {} attempts", message.getPhone(), message.getAttempt());
+            return;
+        }
+        long delay = backoffMillis(message.getAttempt());
+        pendingRetries.incrementAndGet();
+        retried.incrementAndGet();
+        retryScheduler.schedule(() -> {
+            pendingRetries.decrementAndGet();
+            if (!queue.offer(message.nextAttempt())) {
+                dropped.incrementAndGet();
+                logger.error("SMS queue is full, retry of message to {} dropped", message.getPhone());
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Экспоненциальная задержка с джиттером ±20%, чтобы повторы не приходили к провайдеру одной волной
+     */
+    private long backoffMillis(int attempt) {
+        long base = initialBackoffMillis << Math.min(attempt - 1, 20);
+        long capped = Math.min(base, maxBackoffMillis);
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return (long) (capped * jitter);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        retryScheduler.shutdownNow();
+        workerPool.shutdown();
+        try {
+            if (!workerPool.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                workerPool.shutdownNow();
+                logger.warn("SMS dispatcher stopped with {} unsent messages", queue.size());
+            }
+        } catch (InterruptedException e) {
+            workerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.dobalito.service;
+
+import java.util.List;
+
+/**
+ * Канал доставки SMS (конкретный провайдер).
+ * Вызывается только из рабочих потоков SmsDispatcher, поэтому может блокироваться на сетевом вызове.
+ */
+public interface SmsGateway {
+    
+    /**
+     * Имя провайдера для логов
+     */
+    String getName();
+    
+    /**
+     * Сколько сообщений провайдер принимает за один вызов
+     */
+    int getMaxBatchSize();
+    
+    /**
+     * Отправить пачку сообщений.
+     * Исключение означает, что пачка не доставлена и ее нужно повторить целиком.
+     */
+    void sendBatch(List<SmsMessage> messages) throws Exception;
+}
@@ -0,0 +1,40 @@
+package com.dobalito.service;
+
+/**
+ * Исходящее SMS в очереди отправки
+ */
+public class SmsMessage {
+    
+    private final String phone;
+    private final String text;
+    private final int attempt;
+    
+    public SmsMessage(String phone, String text) {
+        this(phone, text, 1);
+    }
+    
+    private SmsMessage(String phone, String text, int attempt) {
+        this.phone = phone;
+        this.text = text;
+        this.attempt = attempt;
+    }
+    
+    /**
+     * То же сообщение для следующей попытки отправки
+     */
+    public SmsMessage nextAttempt() {
+        return new SmsMessage(phone, text, attempt + 1);
+    }
+    
+    public String getPhone() {
+        return phone;
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    public int getAttempt() {
+        return attempt;
+    }
+}
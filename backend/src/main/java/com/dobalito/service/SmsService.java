@@ -1,5 +1,6 @@
 package com.dobalito.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,42 +10,28 @@ public class SmsService {
     
     private static final Logger logger = LoggerFactory.getLogger(SmsService.class);
     
+    @Autowired
+    private SmsDispatcher smsDispatcher;
+    
     /**
-     * Отправляет SMS с кодом верификации
-     * Пока это имитация - в реальности здесь будет вызов внешнего API
+     * Ставит SMS с кодом верификации в очередь отправки и сразу возвращает управление.
+     * Сама отправка через SmsGateway выполняется в фоне SmsDispatcher (с повторами при ошибках).
+     * Возвращает false, если очередь переполнена и сообщение не принято.
      */
     public boolean sendVerificationCode(String phone, String code) {
-        try {
-            // Имитация отправки SMS
-            logger.info("=== SMS ОТПРАВКА (ИМИТАЦИЯ) ===");
-            logger.info("Номер телефона: {}", phone);
-            logger.info("Код верификации: {}", code);
-            logger.info("Сообщение: Ваш код для входа в doBalito: {}", code);
-            logger.info("Код действителен 10 минут");
-            logger.info("================================");
-            
-            // Имитируем задержку отправки
-            Thread.sleep(100);
-            
-            // В реальности здесь будет:
-            // 1. Вызов внешнего SMS API
-            // 2. Обработка ответа
-            // 3. Логирование результата
-            
-            return true;
-            
-        } catch (Exception e) {
-            logger.error("Ошибка при отправке SMS на номер {}: {}", phone, e.getMessage());
-            return false;
+        String text = "Ваш код для входа в doBalito: " + code + ". Код действителен 10 минут";
+        boolean accepted = smsDispatcher.enqueue(phone, text);
+        if (!accepted) {
+            logger.error("SMS с кодом верификации на номер {} не поставлено в очередь", phone);
         }
+        return accepted;
     }
     
     /**
      * Проверяет доступность SMS сервиса
      */
     public boolean isServiceAvailable() {
-        // Имитация проверки доступности сервиса
-        return true;
+        return smsDispatcher.isRunning();
     }
     
     /**
@@ -54,38 +41,4 @@ public class SmsService {
         // Имитация получения статуса
         return "delivered";
     }
-    
-    /**
-     * В будущем здесь будет реальная интеграция с SMS API
-     * Пример структуры для будущей реализации:
-     */
-    /*
-    public boolean sendSmsViaApi(String phone, String message) {
-        try {
-            // Создание HTTP клиента
-            RestTemplate restTemplate = new RestTemplate();
-            
-            // Подготовка запроса
-            SmsRequest request = new SmsRequest();
-            request.setPhone(phone);
-            request.setMessage(message);
-            request.setApiKey(smsApiKey);
-            
-            // Отправка запроса
-            ResponseEntity<SmsResponse> response = restTemplate.postForEntity(
-                smsApiUrl, 
-                request, 
-                SmsResponse.class
-            );
-            
-            // Обработка ответа
-            return response.getStatusCode().is2xxSuccessful() && 
-                   response.getBody().isSuccess();
-                   
-        } catch (Exception e) {
-            logger.error("Ошибка отправки SMS через API: {}", e.getMessage());
-            return false;
-        }
-    }
-    */
 }
@@ -0,0 +1,48 @@
+package com.dobalito.service;
+
+import org.springframework.http.MediaType;
+
+import java.nio.file.Path;
+
+/**
+ * Метаданные файла для отдачи клиенту: путь, размер, тип и ETag по содержимому
+ */
+public class StoredFile {
+    
+    private final Path path;
+    private final long length;
+    private final long lastModified;
+    private final String etag;
+    private final MediaType contentType;
+    
+    public StoredFile(Path path, long length, long lastModified, String etag, MediaType contentType) {
+        this.path = path;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.etag = etag;
+        this.contentType = contentType;
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    public long getLength() {
+        return length;
+    }
+    
+    public long getLastModified() {
+        return lastModified;
+    }
+    
+    /**
+     * Сильный ETag в кавычках
+     */
+    public String getEtag() {
+        return etag;
+    }
+    
+    public MediaType getContentType() {
+        return contentType;
+    }
+}
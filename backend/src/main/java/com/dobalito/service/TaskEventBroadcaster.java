@@ -0,0 +1,453 @@
+package com.dobalito.service;
+
+import com.dobalito.dto.TaskEvent;
+import com.dobalito.entity.TaskOutboxEvent;
+import com.dobalito.repository.TaskOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Рассылка событий заданий подписчикам ленты (Server-Sent Events).
+ *
+ * События приходят пачками из outbox (TaskOutboxRelay), сериализуются один раз и кладутся в очереди подписчиков.
+ * Очередь каждого подписчика ограничена, ее разбирает небольшой пул потоков отправки - relay не ждет клиентов,
+ * а зависшее TCP-соединение задерживает только свою очередь. Подписчик, чья очередь переполнилась
+ * или чья отправка длится дольше send-timeout, отключается: EventSource переподключится с чистой очередью.
+ * id события передается в поле id кадра SSE, повторную доставку клиент распознает по нему.
+ *
+ * При переподключении EventSource присылает Last-Event-ID, и пропущенные события досылаются из outbox
+ * (хранится tasks.outbox.retention). Транзакции коммитятся не в порядке id, поэтому досылаются и последние
+ * replay-gap-window id до Last-Event-ID: событие с меньшим id могло появиться уже после отключения,
+ * а повторы клиент отбрасывает по id. Если часть событий уже удалена или их больше replay-limit,
+ * клиент получает RESYNC и перезагружает список - так отключение медленного клиента не теряет события молча.
+ * Подписчики индексированы по категории, событие получают только подписанные на его категорию и подписчики без фильтра.
+ *
+ * Ожидающее соединение не занимает поток (асинхронный запрос): на подписчика приходятся SseEmitter,
+ * набор категорий и буферы соединения Tomcat. Периодический комментарий держит соединение через прокси
+ * и выявляет отключившихся клиентов.
+ */
+@Component
+public class TaskEventBroadcaster implements TaskEventListener, MeterBinder {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TaskEventBroadcaster.class);
+    
+    public static final String RESYNC_EVENT = "RESYNC";
+    
+    private final ObjectMapper objectMapper;
+    private final TaskOutboxRepository taskOutboxRepository;
+    private final long timeoutMillis;
+    private final long reconnectMillis;
+    private final int maxSubscribers;
+    private final int subscriberQueueCapacity;
+    private final int replayLimit;
+    private final int replayGapWindow;
+    private final long sendTimeoutNanos;
+    private final ThreadPoolExecutor senders;
+    
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Set<Subscriber> allCategories = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Subscriber>> byCategory = new ConcurrentHashMap<>();
+    
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong slowDropped = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    
+    public TaskEventBroadcaster(ObjectMapper objectMapper,
+                                TaskOutboxRepository taskOutboxRepository,
+                                @Value("${tasks.stream.timeout:30m}") Duration timeout,
+                                @Value("${tasks.stream.reconnect-delay:5s}") Duration reconnectDelay,
+                                @Value("${tasks.stream.max-subscribers:8000}") int maxSubscribers,
+                                @Value("${tasks.stream.subscriber-queue-capacity:1000}") int subscriberQueueCapacity,
+                                @Value("${tasks.stream.send-timeout:10s}") Duration sendTimeout,
+                                @Value("${tasks.stream.sender-threads:4}") int senderThreads,
+                                @Value("${tasks.stream.replay-limit:500}") int replayLimit,
+                                @Value("${tasks.stream.replay-gap-window:100}") int replayGapWindow) {
+        this.objectMapper = objectMapper;
+        this.taskOutboxRepository = taskOutboxRepository;
+        this.replayLimit = replayLimit;
+        this.replayGapWindow = replayGapWindow;
+        this.timeoutMillis = timeout.toMillis();
+        this.reconnectMillis = reconnectDelay.toMillis();
+        this.maxSubscribers = maxSubscribers;
+        this.subscriberQueueCapacity = subscriberQueueCapacity;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        // Очередь пула не переполняется: у подписчика не больше одной задачи отправки
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "task-events-sender-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+    
+    /**
+     * Новый подписчик. Пустой или null categoryIds - все категории.
+     * lastEventId - заголовок Last-Event-ID переподключения: сначала досылаются события после него.
+     * Пустой Optional, если достигнут лимит подписчиков на экземпляр.
+     */
+    public Optional<SseEmitter> subscribe(Collection<Long> categoryIds, Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            rejected.incrementAndGet();
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter,
+            categoryIds == null ? Set.of() : Set.copyOf(categoryIds), subscriberQueueCapacity);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+        
+        // Первый кадр сразу отдает заголовки через прокси и задает клиенту паузу переподключения.
+        // До регистрации очередь никто не разбирает, поэтому кадр уходит первым
+        Set<ResponseBodyEmitter.DataWithMediaType> subscribed =
+            SseEmitter.event().reconnectTime(reconnectMillis).comment("subscribed").build();
+        if (lastEventId == null) {
+            enqueue(subscriber, subscribed);
+        } else {
+            // Живые события копятся в очереди, пока досылаются пропущенные
+            subscriber.replaying = true;
+            send(subscriber, subscribed);
+        }
+        subscribers.add(subscriber);
+        if (subscriber.categories.isEmpty()) {
+            allCategories.add(subscriber);
+        } else {
+            for (Long categoryId : subscriber.categories) {
+                // compute атомарен с удалением пустого набора в unsubscribe
+                byCategory.compute(categoryId, (id, set) -> {
+                    Set<Subscriber> target = set != null ? set : ConcurrentHashMap.newKeySet();
+                    target.add(subscriber);
+                    return target;
+                });
+            }
+        }
+        if (lastEventId != null) {
+            replay(subscriber, lastEventId);
+        }
+        return Optional.of(emitter);
+    }
+    
+    @Override
+    public void onTaskEvents(List<TaskEvent> events) {
+        published.addAndGet(events.size());
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        List<EventFrame> frames = new ArrayList<>(events.size());
+        for (TaskEvent event : events) {
+            Set<ResponseBodyEmitter.DataWithMediaType> data = toFrame(event);
+            if (data != null) {
+                frames.add(new EventFrame(event.categoryId(), data));
+            }
+        }
+        for (EventFrame frame : frames) {
+            for (Subscriber subscriber : allCategories) {
+                enqueue(subscriber, frame.data);
+            }
+            Set<Subscriber> categorySubscribers = byCategory.get(frame.categoryId);
+            if (categorySubscribers != null) {
+                for (Subscriber subscriber : categorySubscribers) {
+                    enqueue(subscriber, frame.data);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Комментарий-пульс: прокси не закрывают простаивающее соединение, отключившиеся клиенты отваливаются на записи.
+     * Заодно отключаются подписчики, чья текущая отправка длится дольше send-timeout.
+     */
+    @Scheduled(fixedDelayString = "${tasks.stream.heartbeat-interval:PT25S}")
+    public void heartbeat() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        Set<ResponseBodyEmitter.DataWithMediaType> frame = SseEmitter.event().comment("").build();
+        for (Subscriber subscriber : subscribers) {
+            long sendingSince = subscriber.sendingSince;
+            if (sendingSince != 0 && now - sendingSince > sendTimeoutNanos) {
+                dropSlow(subscriber, new TimeoutException("Task event send timed out"));
+            } else {
+                enqueue(subscriber, frame);
+            }
+        }
+    }
+    
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+    
+    /**
+     * Подписчики, события, доставка и отключения медленных клиентов в метриках tasks.stream.*
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tasks.stream.subscribers", this, TaskEventBroadcaster::getSubscriberCount)
+            .description("Open task feed connections")
+            .register(registry);
+        Gauge.builder("tasks.stream.senders.pending", senders, executor -> executor.getQueue().size())
+            .description("Subscribers with queued frames waiting for a sender thread")
+            .register(registry);
+        FunctionCounter.builder("tasks.stream.events.published", published, AtomicLong::get).register(registry);
+        FunctionCounter.builder("tasks.stream.events.delivered", delivered, AtomicLong::get).register(registry);
+        FunctionCounter.builder("tasks.stream.subscribers.dropped", slowDropped, AtomicLong::get)
+            .description("Subscribers disconnected for a full queue or a send timeout")
+            .register(registry);
+        FunctionCounter.builder("tasks.stream.subscriptions.rejected", rejected, AtomicLong::get).register(registry);
+        FunctionCounter.builder("tasks.stream.events.replayed", replayed, AtomicLong::get)
+            .description("Missed events re-sent from the outbox after a reconnect with Last-Event-ID")
+            .register(registry);
+        FunctionCounter.builder("tasks.stream.resyncs", resyncs, AtomicLong::get)
+            .description("Reconnects told to reload the list because missed events could not be replayed")
+            .register(registry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+    
+    /**
+     * Дослать из outbox события после lastEventId - replay-gap-window (в потоке запроса, до отдачи emitter),
+     * затем открыть очередь. Окно перед lastEventId ловит события, закоммиченные позже него.
+     * Если события после lastEventId уже удалены по сроку хранения или их больше replay-limit, вместо них
+     * уходит RESYNC с id последнего события: клиент перезагружает список и продолжает с этого места.
+     */
+    private void replay(Subscriber subscriber, long lastEventId) {
+        try {
+            // В окне не больше replay-gap-window записей, поэтому полная страница - больше replay-limit после lastEventId
+            List<TaskOutboxEvent> rows = taskOutboxRepository.findAfter(Math.max(0, lastEventId - replayGapWindow),
+                PageRequest.of(0, replayGapWindow + replayLimit + 1));
+            long missed = rows.stream().filter(row -> row.getId() > lastEventId).count();
+            if (missed > replayLimit || !taskOutboxRepository.existsByIdLessThanEqual(lastEventId)) {
+                resync(subscriber);
+                return;
+            }
+            for (TaskOutboxEvent row : rows) {
+                TaskEvent event = toEvent(row);
+                if (event == null || !subscriber.accepts(event.categoryId())) {
+                    continue;
+                }
+                Set<ResponseBodyEmitter.DataWithMediaType> frame = toFrame(event);
+                if (frame != null) {
+                    if (!send(subscriber, frame)) {
+                        return;
+                    }
+                    replayed.incrementAndGet();
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Task feed replay after event {} failed", lastEventId, e);
+            resync(subscriber);
+        } finally {
+            subscriber.replaying = false;
+            // Событие могло встать в очередь, пока флаг был поднят
+            if (!subscriber.pending.isEmpty()) {
+                schedule(subscriber);
+            }
+        }
+    }
+    
+    private void resync(Subscriber subscriber) {
+        resyncs.incrementAndGet();
+        long latestId;
+        try {
+            latestId = taskOutboxRepository.findMaxId();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to read the latest task outbox event", e);
+            latestId = 0;
+        }
+        // id до data: строки кадра идут в порядке вызовов
+        SseEmitter.SseEventBuilder frame = SseEmitter.event();
+        if (latestId > 0) {
+            frame.id(String.valueOf(latestId));
+        }
+        send(subscriber, frame.name(RESYNC_EVENT).data("{}").build());
+    }
+    
+    /**
+     * Положить кадр в очередь подписчика и запустить его отправку, если она не идет
+     */
+    private void enqueue(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+        if (subscriber.closeReason != null) {
+            return;
+        }
+        if (!subscriber.pending.offer(frame)) {
+            dropSlow(subscriber, new IOException("Task event queue of the subscriber is full"));
+            return;
+        }
+        // Во время досылки очередь разбирается после нее
+        if (!subscriber.replaying) {
+            schedule(subscriber);
+        }
+    }
+    
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+    
+    /**
+     * Отправить накопившиеся кадры подписчика. Задача отправки у подписчика одна, поэтому порядок сохраняется.
+     * Emitter отключенного подписчика завершается здесь же: его методы синхронизированы, и вызов из другого потока
+     * ждал бы зависшей записи.
+     */
+    private void drain(Subscriber subscriber) {
+        do {
+            Set<ResponseBodyEmitter.DataWithMediaType> frame;
+            while (subscriber.closeReason == null && (frame = subscriber.pending.poll()) != null) {
+                if (!send(subscriber, frame)) {
+                    subscriber.pending.clear();
+                    return;
+                }
+            }
+            if (subscriber.closeReason != null) {
+                subscriber.pending.clear();
+                subscriber.emitter.completeWithError(subscriber.closeReason);
+                return;
+            }
+            subscriber.scheduled.set(false);
+            // Кадр или отключение могли прийти после проверки, но до сброса флага - тогда они обрабатываются на этом потоке
+        } while ((!subscriber.pending.isEmpty() || subscriber.closeReason != null)
+            && subscriber.scheduled.compareAndSet(false, true));
+    }
+    
+    private boolean send(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+        subscriber.sendingSince = System.nanoTime();
+        try {
+            subscriber.emitter.send(frame);
+            delivered.incrementAndGet();
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился или emitter уже завершен
+            unsubscribe(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return false;
+        } finally {
+            subscriber.sendingSince = 0;
+        }
+    }
+    
+    /**
+     * Отключить подписчика, который не успевает читать: новые кадры ему больше не ставятся, emitter завершает
+     * его задача отправки. Поток, зависший в записи, освобождается по таймауту записи Tomcat
+     * (server.tomcat.connection-timeout).
+     */
+    private void dropSlow(Subscriber subscriber, Exception reason) {
+        if (!subscribers.contains(subscriber)) {
+            return;
+        }
+        slowDropped.incrementAndGet();
+        logger.debug("Disconnecting slow task feed subscriber: {}", reason.getMessage());
+        unsubscribe(subscriber);
+        subscriber.closeReason = reason;
+        subscriber.pending.clear();
+        schedule(subscriber);
+    }
+    
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        allCategories.remove(subscriber);
+        for (Long categoryId : subscriber.categories) {
+            byCategory.computeIfPresent(categoryId, (id, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+    
+    private Set<ResponseBodyEmitter.DataWithMediaType> toFrame(TaskEvent event) {
+        try {
+            return SseEmitter.event()
+                .id(String.valueOf(event.id()))
+                .name(event.type().name())
+                .data(objectMapper.writeValueAsString(event))
+                .build();
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize task event {} for task {}", event.type(), event.taskId(), e);
+            return null;
+        }
+    }
+    
+    private TaskEvent toEvent(TaskOutboxEvent row) {
+        try {
+            return objectMapper.readValue(row.getPayload(), TaskEvent.class).withId(row.getId());
+        } catch (JsonProcessingException e) {
+            logger.error("Skipping unreadable task outbox event {} in replay", row.getId(), e);
+            return null;
+        }
+    }
+    
+    /**
+     * Готовый кадр события и категория для выбора подписчиков
+     */
+    private record EventFrame(Long categoryId, Set<ResponseBodyEmitter.DataWithMediaType> data) {
+    }
+    
+    /**
+     * Соединение, его фильтр по категориям и очередь неотправленных кадров (сравнение по ссылке)
+     */
+    private static final class Subscriber {
+        
+        private final SseEmitter emitter;
+        private final Set<Long> categories;
+        private final LinkedBlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> pending;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // System.nanoTime() начала текущей отправки, 0 - отправка не идет
+        private volatile long sendingSince;
+        // Причина отключения медленного подписчика, null - подписчик активен
+        private volatile Exception closeReason;
+        // Идет досылка пропущенных событий, живые ждут в очереди
+        private volatile boolean replaying;
+        
+        private Subscriber(SseEmitter emitter, Set<Long> categories, int queueCapacity) {
+            this.emitter = emitter;
+            this.categories = categories;
+            // Узлы создаются по мере заполнения: у тысяч простаивающих подписчиков очередь почти ничего не занимает
+            this.pending = new LinkedBlockingQueue<>(queueCapacity);
+        }
+        
+        private boolean accepts(Long categoryId) {
+            return categories.isEmpty() || categories.contains(categoryId);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.dobalito.service;
+
+import com.dobalito.dto.TaskEvent;
+
+import java.util.List;
+
+/**
+ * Постоянный получатель событий заданий из outbox (очередь работ: уведомления, сброс кешей, индексация).
+ *
+ * В отличие от TaskEventListener, который получает события на каждом экземпляре с момента его старта, у получателя
+ * один курсор на все экземпляры в таблице task_outbox_consumer (строка по getConsumerName). Пачку обрабатывает
+ * экземпляр, захвативший строку курсора; onTaskEvents вызывается в транзакции, которая затем сдвигает курсор.
+ * Изменения в БД, сделанные получателем в этой транзакции, фиксируются ровно один раз вместе с курсором;
+ * внешние действия - не менее одного раза: при исключении транзакция откатывается и пачка приходит снова.
+ * События старше курсора не удаляются по сроку хранения, пока получатель их не обработал.
+ */
+public interface TaskEventConsumer {
+    
+    /**
+     * Имя курсора в task_outbox_consumer, не меняется между версиями
+     */
+    String getConsumerName();
+    
+    void onTaskEvents(List<TaskEvent> events);
+}
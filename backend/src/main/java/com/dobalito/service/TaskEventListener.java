@@ -0,0 +1,23 @@
+package com.dobalito.service;
+
+import com.dobalito.dto.TaskEvent;
+
+import java.util.List;
+
+/**
+ * Получатель событий заданий из outbox (TaskOutboxRelay) на каждом экземпляре - для рассылки клиентам этого
+ * экземпляра (SSE). Курсор relay для таких получателей живет в памяти и при старте встает на последнее событие:
+ * события, записанные до старта, экземпляр не получает. Работа, которую нужно сделать один раз на все экземпляры
+ * и не потерять при перезапуске, реализуется через TaskEventConsumer.
+ *
+ * События приходят пачками после коммита изменивших их транзакций, на каждом экземпляре - для одного задания
+ * порядок изменений сохраняется. Если получатель бросил исключение, курсор relay не сдвигается и пачка
+ * доставляется повторно (всем получателям); повтор можно распознать по TaskEvent.id. Получатель, который
+ * не может принять пачку (переполнен), бросает исключение - это и есть обратное давление на relay.
+ * Не менее одного раза гарантируется получателю, а не его клиентам: TaskEventBroadcaster принимает каждую
+ * пачку и досылает пропущенное отключенным клиентам из outbox по Last-Event-ID.
+ */
+public interface TaskEventListener {
+    
+    void onTaskEvents(List<TaskEvent> events);
+}
@@ -0,0 +1,54 @@
+package com.dobalito.service;
+
+import com.dobalito.dto.TaskEvent;
+import com.dobalito.entity.TaskOutboxEvent;
+import com.dobalito.repository.TaskOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Запись событий заданий в outbox в транзакции изменения задания.
+ * Событие сохраняется или откатывается вместе с изменением; доставка получателям идет вне запроса (TaskOutboxRelay),
+ * поэтому время записи не зависит от числа и скорости получателей.
+ */
+@Service
+public class TaskOutbox {
+    
+    @Autowired
+    private TaskOutboxRepository taskOutboxRepository;
+    
+    @Autowired
+    private TaskOutboxRelay taskOutboxRelay;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    /**
+     * Добавить событие в текущую транзакцию. Изменение задания должно быть уже записано (flush),
+     * иначе событие конкурирующей транзакции того же задания может получить меньший id.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(TaskEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать событие " + event.type() + " задания " + event.taskId(), e);
+        }
+        taskOutboxRepository.save(new TaskOutboxEvent(event.taskId(), event.type(), payload));
+        
+        // Relay забирает событие сразу после коммита, не дожидаясь очередного опроса
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                taskOutboxRelay.wakeUp();
+            }
+        });
+    }
+}
@@ -0,0 +1,390 @@
+package com.dobalito.service;
+
+import com.dobalito.dto.TaskEvent;
+import com.dobalito.entity.TaskOutboxEvent;
+import com.dobalito.repository.TaskOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Доставка событий из outbox (task_outbox) получателям TaskEventListener этого экземпляра
+ * и постоянным получателям TaskEventConsumer.
+ *
+ * Outbox - общий журнал: relay каждого экземпляра читает записи после своего курсора (id последнего доставленного
+ * события) и ничего не удаляет, поэтому событие получают подписчики всех реплик. Курсор TaskEventListener живет
+ * в памяти и при старте встает на последнее событие: события до старта рассылке этого экземпляра не нужны.
+ * Курсор TaskEventConsumer хранится в task_outbox_consumer: пачку обрабатывает тот экземпляр, который захватил
+ * строку курсора, и курсор сдвигается в той же транзакции. Старые записи удаляет отдельная задача
+ * (tasks.outbox.retention), но не дальше наименьшего постоянного курсора.
+ *
+ * Id выдаются при вставке, а видны после коммита, поэтому курсор может обогнать еще не закоммиченную запись.
+ * Пропущенные id запоминаются и перечитываются до gap-timeout - так доставляется и медленная транзакция;
+ * пропуск от отката просто истекает. Порядок событий одного задания сохраняется: изменение задания блокирует
+ * его строку до коммита, и следующее событие того же задания получает id после коммита предыдущего.
+ *
+ * Постоянный курсор пропуск не перескакивает, пока запись после него моложе gap-timeout.
+ *
+ * Исключение получателя не сдвигает курсор: пачка повторяется после паузы (доставка не менее одного раза).
+ * После коммита TaskOutbox будит поток, опрос раз в poll-interval подбирает события других экземпляров.
+ */
+@Component
+public class TaskOutboxRelay implements MeterBinder {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TaskOutboxRelay.class);
+    
+    // Незакоммиченных записей не больше, чем соединений с БД у всех экземпляров; при большем разрыве
+    // (скачок последовательности, пустой outbox при старте) отслеживаются ближайшие к новой записи id
+    private static final int MAX_TRACKED_GAPS = 1000;
+    
+    private final TaskOutboxRepository taskOutboxRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<TaskEventListener> listenerProvider;
+    private final ObjectProvider<TaskEventConsumer> consumerProvider;
+    private final TransactionTemplate transaction;
+    private final Pageable batch;
+    private final long pollIntervalMillis;
+    private final long retryBackoffMillis;
+    private final long gapTimeoutNanos;
+    private final Duration retention;
+    
+    private final Semaphore wakeups = new Semaphore(0);
+    private final AtomicLong relayed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong expiredGaps = new AtomicLong();
+    
+    // Состояние курсора меняет только поток relay
+    private volatile long lastId;
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    private volatile int gapCount;
+    
+    private List<TaskEventListener> listeners;
+    private List<TaskEventConsumer> consumers;
+    // Когда повторить пачку упавшего постоянного получателя (System.nanoTime), только поток relay
+    private final Map<String, Long> consumerRetryAt = new HashMap<>();
+    private Thread worker;
+    private volatile boolean running;
+    
+    public TaskOutboxRelay(TaskOutboxRepository taskOutboxRepository,
+                           ObjectMapper objectMapper,
+                           ObjectProvider<TaskEventListener> listenerProvider,
+                           ObjectProvider<TaskEventConsumer> consumerProvider,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${tasks.outbox.batch-size:100}") int batchSize,
+                           @Value("${tasks.outbox.poll-interval:1s}") Duration pollInterval,
+                           @Value("${tasks.outbox.retry-backoff:5s}") Duration retryBackoff,
+                           @Value("${tasks.outbox.gap-timeout:1m}") Duration gapTimeout,
+                           @Value("${tasks.outbox.retention:1h}") Duration retention) {
+        this.taskOutboxRepository = taskOutboxRepository;
+        this.objectMapper = objectMapper;
+        this.listenerProvider = listenerProvider;
+        this.consumerProvider = consumerProvider;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batch = PageRequest.of(0, batchSize);
+        this.pollIntervalMillis = pollInterval.toMillis();
+        this.retryBackoffMillis = retryBackoff.toMillis();
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+        this.retention = retention;
+    }
+    
+    @PostConstruct
+    public void start() {
+        listeners = listenerProvider.orderedStream().toList();
+        consumers = consumerProvider.orderedStream().toList();
+        lastId = taskOutboxRepository.findMaxId();
+        // Новый постоянный получатель начинает с текущего конца журнала, существующий - со своего курсора
+        if (!consumers.isEmpty()) {
+            transaction.executeWithoutResult(status -> consumers.forEach(consumer ->
+                taskOutboxRepository.registerConsumer(consumer.getConsumerName(), lastId)));
+        }
+        running = true;
+        worker = new Thread(this::run, "task-outbox-relay");
+        worker.setDaemon(true);
+        worker.start();
+        logger.info("Task outbox relay started: listeners={}, consumers={}, batchSize={}, cursor={}",
+            listeners.size(), consumers.size(), batch.getPageSize(), lastId);
+    }
+    
+    /**
+     * Разбудить поток: в outbox появились события
+     */
+    public void wakeUp() {
+        wakeups.release();
+    }
+    
+    public long getRelayedCount() {
+        return relayed.get();
+    }
+    
+    public long getFailedBatchCount() {
+        return failedBatches.get();
+    }
+    
+    /**
+     * Удалить события старше tasks.outbox.retention, которые уже обработали все постоянные получатели.
+     * Выполняется на каждом экземпляре, удаление идемпотентно.
+     */
+    @Scheduled(initialDelayString = "${tasks.outbox.cleanup-interval:PT10M}", fixedDelayString = "${tasks.outbox.cleanup-interval:PT10M}")
+    public void purgeExpired() {
+        Integer purged = transaction.execute(status -> {
+            Long minConsumerCursor = taskOutboxRepository.findMinConsumerCursor();
+            return taskOutboxRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention),
+                minConsumerCursor != null ? minConsumerCursor : Long.MAX_VALUE);
+        });
+        if (purged != null && purged > 0) {
+            logger.debug("Удалено событий outbox старше {}: {}", retention, purged);
+        }
+    }
+    
+    /**
+     * Доставленные события, неудачные пачки, курсор и отслеживаемые пропуски в метриках task.outbox.*
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("task.outbox.relayed", relayed, AtomicLong::get).register(registry);
+        FunctionCounter.builder("task.outbox.consumed", consumed, AtomicLong::get)
+            .description("Outbox events acknowledged by durable consumers on this instance")
+            .register(registry);
+        FunctionCounter.builder("task.outbox.failed.batches", failedBatches, AtomicLong::get).register(registry);
+        FunctionCounter.builder("task.outbox.gaps.expired", expiredGaps, AtomicLong::get)
+            .description("Skipped outbox ids that never became visible (rolled back)")
+            .register(registry);
+        Gauge.builder("task.outbox.gaps", this, relay -> relay.gapCount)
+            .description("Skipped outbox ids still being re-checked")
+            .register(registry);
+        Gauge.builder("task.outbox.cursor", this, relay -> relay.lastId)
+            .description("Id of the last outbox event delivered on this instance")
+            .register(registry);
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+    
+    private void run() {
+        while (running) {
+            try {
+                // Полная пачка - вероятно, есть еще, забираем без ожидания
+                boolean fullBatch = relayBatch() == batch.getPageSize();
+                if (consumeBatches()) {
+                    fullBatch = true;
+                }
+                if (!fullBatch) {
+                    wakeups.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                    wakeups.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                failedBatches.incrementAndGet();
+                logger.error("Task outbox delivery failed, retrying in {} ms", retryBackoffMillis, e);
+                try {
+                    Thread.sleep(retryBackoffMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Доставить пачку после курсора и появившиеся пропущенные события, затем сдвинуть курсор.
+     * Возвращает число новых записей после курсора.
+     */
+    private int relayBatch() {
+        expireGaps();
+        List<TaskOutboxEvent> late = gaps.isEmpty() ? List.of() : taskOutboxRepository.findAllById(gaps.keySet());
+        List<TaskOutboxEvent> fresh = taskOutboxRepository.findAfter(lastId, batch);
+        if (late.isEmpty() && fresh.isEmpty()) {
+            return 0;
+        }
+        
+        List<TaskOutboxEvent> rows = new ArrayList<>(late.size() + fresh.size());
+        rows.addAll(late);
+        rows.addAll(fresh);
+        rows.sort(Comparator.comparing(TaskOutboxEvent::getId));
+        List<TaskEvent> events = toEvents(rows);
+        if (!events.isEmpty()) {
+            for (TaskEventListener listener : listeners) {
+                listener.onTaskEvents(events);
+            }
+        }
+        
+        // Пачка доставлена всем получателям - только теперь двигаем курсор
+        for (TaskOutboxEvent row : late) {
+            gaps.remove(row.getId());
+        }
+        for (TaskOutboxEvent row : fresh) {
+            trackGaps(lastId, row.getId());
+            lastId = row.getId();
+        }
+        gapCount = gaps.size();
+        relayed.addAndGet(rows.size());
+        return fresh.size();
+    }
+    
+    /**
+     * Обработать по пачке для каждого постоянного получателя. Ошибка одного получателя не задерживает
+     * остальных: его пачка повторяется через retry-backoff. Возвращает true, если хотя бы одна пачка полная.
+     */
+    private boolean consumeBatches() {
+        boolean fullBatch = false;
+        for (TaskEventConsumer consumer : consumers) {
+            Long retryAt = consumerRetryAt.get(consumer.getConsumerName());
+            if (retryAt != null && System.nanoTime() - retryAt < 0) {
+                continue;
+            }
+            try {
+                if (consumeBatch(consumer) == batch.getPageSize()) {
+                    fullBatch = true;
+                }
+                consumerRetryAt.remove(consumer.getConsumerName());
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return false;
+                }
+                failedBatches.incrementAndGet();
+                consumerRetryAt.put(consumer.getConsumerName(),
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryBackoffMillis));
+                logger.error("Task outbox consumer {} failed, retrying in {} ms",
+                    consumer.getConsumerName(), retryBackoffMillis, e);
+            }
+        }
+        return fullBatch;
+    }
+    
+    /**
+     * Захватить курсор получателя, передать ему пачку после курсора и сдвинуть курсор - в одной транзакции.
+     * Если курсор захвачен другим экземпляром, пачку обработает он. Возвращает число обработанных записей.
+     */
+    private int consumeBatch(TaskEventConsumer consumer) {
+        Integer count = transaction.execute(status -> {
+            Optional<Long> cursor = taskOutboxRepository.claimConsumer(consumer.getConsumerName());
+            if (cursor.isEmpty()) {
+                return 0;
+            }
+            List<TaskOutboxEvent> rows = settledAfter(cursor.get(), taskOutboxRepository.findAfter(cursor.get(), batch));
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            List<TaskEvent> events = toEvents(rows);
+            if (!events.isEmpty()) {
+                consumer.onTaskEvents(events);
+            }
+            taskOutboxRepository.advanceConsumer(consumer.getConsumerName(), rows.get(rows.size() - 1).getId());
+            return rows.size();
+        });
+        consumed.addAndGet(count);
+        return count;
+    }
+    
+    /**
+     * Записи после курсора до первого пропуска, который может быть незакоммиченной транзакцией.
+     * Постоянный курсор не перечитывает пропуски, поэтому не перескакивает их, пока запись после пропуска
+     * моложе gap-timeout; после этого пропуск считается откатом.
+     */
+    private List<TaskOutboxEvent> settledAfter(long cursor, List<TaskOutboxEvent> rows) {
+        LocalDateTime settled = LocalDateTime.now().minusNanos(gapTimeoutNanos);
+        long expectedId = cursor + 1;
+        int count = 0;
+        for (TaskOutboxEvent row : rows) {
+            if (row.getId() != expectedId && row.getCreatedAt().isAfter(settled)) {
+                break;
+            }
+            expectedId = row.getId() + 1;
+            count++;
+        }
+        return rows.subList(0, count);
+    }
+    
+    /**
+     * Запомнить id между соседними прочитанными записями: их транзакции могли еще не закоммититься
+     */
+    private void trackGaps(long previousId, long nextId) {
+        long from = Math.max(previousId + 1, nextId - (MAX_TRACKED_GAPS - gaps.size()));
+        if (from > previousId + 1) {
+            logger.debug("Task outbox ids {}..{} are not re-checked", previousId + 1, from - 1);
+        }
+        long deadline = System.nanoTime() + gapTimeoutNanos;
+        for (long id = from; id < nextId; id++) {
+            gaps.put(id, deadline);
+        }
+    }
+    
+    /**
+     * Забыть пропуски старше gap-timeout: транзакция откатилась или id сгорел в последовательности
+     */
+    private void expireGaps() {
+        long now = System.nanoTime();
+        // Порядок вставки совпадает с порядком сроков - истекшие в начале
+        Iterator<Long> iterator = gaps.values().iterator();
+        while (iterator.hasNext() && now - iterator.next() > 0) {
+            iterator.remove();
+            expiredGaps.incrementAndGet();
+        }
+        gapCount = gaps.size();
+    }
+    
+    private List<TaskEvent> toEvents(List<TaskOutboxEvent> rows) {
+        List<TaskEvent> events = new ArrayList<>(rows.size());
+        for (TaskOutboxEvent row : rows) {
+            TaskEvent event = toEvent(row);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+    
+    /**
+     * Нечитаемая запись пропускается, иначе она остановила бы доставку всех последующих
+     */
+    private TaskEvent toEvent(TaskOutboxEvent row) {
+        try {
+            return objectMapper.readValue(row.getPayload(), TaskEvent.class).withId(row.getId());
+        } catch (JsonProcessingException e) {
+            logger.error("Skipping unreadable task outbox event {} ({} of task {})", row.getId(), row.getEventType(), row.getTaskId(), e);
+            return null;
+        }
+    }
+}
@@ -1,24 +1,41 @@
 package com.dobalito.service;
 
+import com.dobalito.config.MetricsConfig;
+import com.dobalito.dto.CursorPage;
 import com.dobalito.dto.TaskDto;
+import com.dobalito.dto.TaskEvent;
+import com.dobalito.dto.TaskFeedCursor;
+import com.dobalito.dto.TaskListItem;
+import com.dobalito.dto.TaskSearchCursor;
+import com.dobalito.dto.TaskStatsDto;
+import com.dobalito.dto.TaskStatusCounts;
 import com.dobalito.entity.Category;
 import com.dobalito.entity.Task;
 import com.dobalito.entity.TaskStatus;
 import com.dobalito.entity.User;
+import com.dobalito.exception.ValidationException;
 import com.dobalito.repository.CategoryRepository;
 import com.dobalito.repository.TaskRepository;
 import com.dobalito.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class TaskService {
     
     @Autowired
@@ -30,6 +47,10 @@ public class TaskService {
     @Autowired
     private CategoryRepository categoryRepository;
     
+    // Task lifecycle events, written in the same transaction and delivered to listeners by the outbox relay
+    @Autowired
+    private TaskOutbox taskOutbox;
+    
     // Create a new task
     public Task createTask(TaskDto taskDto, Long creatorId) {
         User creator = userRepository.findById(creatorId)
@@ -47,7 +68,9 @@ public class TaskService {
         task.setCategory(category);
         task.setStatus(TaskStatus.OPEN);
         
-        return taskRepository.save(task);
+        Task saved = taskRepository.save(task);
+        taskOutbox.append(TaskEvent.of(TaskEvent.Type.TASK_CREATED, saved));
+        return saved;
     }
     
     // Get task by ID
@@ -64,10 +87,19 @@ public class TaskService {
     
     // Get tasks by creator (author)
     @Transactional(readOnly = true)
-    public List<Task> getTasksByCreator(Long creatorId) {
-        User creator = userRepository.findById(creatorId)
-                .orElseThrow(() -> new RuntimeException("Автор задания не найден"));
-        return taskRepository.findByCreatorOrderByCreatedAtDesc(creator);
+    public List<TaskListItem> getTasksByCreator(Long creatorId) {
+        return taskRepository.findListItemsByCreatorId(creatorId);
+    }
+    
+    // Get tasks by creator (author) with pagination
+    @Transactional(readOnly = true)
+    public Page<TaskListItem> getTasksByCreator(Long creatorId, Pageable pageable) {
+        return taskRepository.findListItemsByCreatorId(creatorId, pageable);
+    }
+    
+    // Stream tasks by creator for export (caller must consume the stream inside its own transaction)
+    public Stream<TaskListItem> streamTasksByCreator(Long creatorId) {
+        return taskRepository.streamListItemsByCreatorId(creatorId);
     }
     
     // Get tasks by executor
@@ -86,14 +118,36 @@ public class TaskService {
     
     // Get tasks by status
     @Transactional(readOnly = true)
-    public List<Task> getTasksByStatus(TaskStatus status) {
-        return taskRepository.findByStatusOrderByCreatedAtDesc(status);
+    public List<TaskListItem> getTasksByStatus(TaskStatus status) {
+        return taskRepository.findListItemsByStatus(status);
+    }
+    
+    // Get tasks by status with pagination
+    @Transactional(readOnly = true)
+    public Page<TaskListItem> getTasksByStatus(TaskStatus status, Pageable pageable) {
+        return taskRepository.findListItemsByStatus(status, pageable);
+    }
+    
+    // Stream tasks by status for export
+    public Stream<TaskListItem> streamTasksByStatus(TaskStatus status) {
+        return taskRepository.streamListItemsByStatus(status);
     }
     
     // Get tasks by category
     @Transactional(readOnly = true)
-    public List<Task> getTasksByCategory(Long categoryId) {
-        return taskRepository.findByCategoryIdOrderByCreatedAtDesc(categoryId);
+    public List<TaskListItem> getTasksByCategory(Long categoryId) {
+        return taskRepository.findListItemsByCategoryId(categoryId);
+    }
+    
+    // Get tasks by category with pagination
+    @Transactional(readOnly = true)
+    public Page<TaskListItem> getTasksByCategory(Long categoryId, Pageable pageable) {
+        return taskRepository.findListItemsByCategoryId(categoryId, pageable);
+    }
+    
+    // Stream tasks by category for export
+    public Stream<TaskListItem> streamTasksByCategory(Long categoryId) {
+        return taskRepository.streamListItemsByCategoryId(categoryId);
     }
     
     // Get tasks with pagination
@@ -104,8 +158,74 @@ public class TaskService {
     
     // Get open tasks with pagination
     @Transactional(readOnly = true)
-    public Page<Task> getOpenTasksWithPagination(Pageable pageable) {
-        return taskRepository.findByStatusAndExecutorIsNullOrderByCreatedAtDesc(TaskStatus.OPEN, pageable);
+    public Page<TaskListItem> getOpenTasksWithPagination(Pageable pageable) {
+        return taskRepository.findOpenListItems(TaskStatus.OPEN, pageable);
+    }
+    
+    // Get open tasks with keyset pagination by (createdAt, id) - cost does not depend on depth
+    @Transactional(readOnly = true)
+    public CursorPage<TaskListItem> getOpenTasksAfterCursor(String cursor, int size) {
+        // Запрашиваем на один элемент больше, чтобы понять, есть ли следующая страница
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<TaskListItem> tasks;
+        if (cursor == null || cursor.isBlank()) {
+            tasks = taskRepository.findOpenFeedItemsFirstPage(limit);
+        } else {
+            TaskFeedCursor position = TaskFeedCursor.decode(cursor);
+            tasks = taskRepository.findOpenFeedItemsAfter(position.getCreatedAt(), position.getId(), limit);
+        }
+        
+        if (tasks.size() <= size) {
+            return new CursorPage<>(tasks, null);
+        }
+        
+        List<TaskListItem> page = tasks.subList(0, size);
+        TaskListItem last = page.get(size - 1);
+        return new CursorPage<>(page, new TaskFeedCursor(last.createdAt(), last.id()).encode());
+    }
+    
+    // Full-text search over title and description, ranked, with keyset pagination by (rank, id)
+    @Transactional(readOnly = true)
+    public CursorPage<TaskListItem> searchTasks(String query, TaskStatus status, Long categoryId, String cursor, int size) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        
+        Float afterRank = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            TaskSearchCursor position = TaskSearchCursor.decode(cursor);
+            afterRank = position.getRank();
+            afterId = position.getId();
+        }
+        
+        // Запрашиваем на один элемент больше, чтобы понять, есть ли следующая страница
+        List<Object[]> ranked = taskRepository.searchRanked(query.trim(), status != null ? status.name() : null,
+                categoryId, afterRank, afterId, size + 1);
+        boolean hasNext = ranked.size() > size;
+        if (hasNext) {
+            ranked = ranked.subList(0, size);
+        }
+        if (ranked.isEmpty()) {
+            return new CursorPage<>(List.of(), null);
+        }
+        
+        List<Long> ids = ranked.stream()
+                .map(row -> ((Number) row[0]).longValue())
+                .toList();
+        Map<Long, TaskListItem> itemsById = taskRepository.findListItemsByIdIn(ids).stream()
+                .collect(Collectors.toMap(TaskListItem::id, Function.identity()));
+        List<TaskListItem> items = ids.stream()
+                .map(itemsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+        
+        String nextCursor = null;
+        if (hasNext) {
+            Object[] last = ranked.get(ranked.size() - 1);
+            nextCursor = new TaskSearchCursor(((Number) last[1]).floatValue(), ((Number) last[0]).longValue()).encode();
+        }
+        return new CursorPage<>(items, nextCursor);
     }
     
     // Get tasks by creator with pagination (optimized version)
@@ -120,36 +240,28 @@ public class TaskService {
     
     // Get tasks by executor with pagination
     @Transactional(readOnly = true)
-    public Page<Task> getTasksByExecutorWithPagination(Long executorId, Pageable pageable) {
-        User executor = userRepository.findById(executorId)
-                .orElseThrow(() -> new RuntimeException("Исполнитель не найден"));
-        return taskRepository.findByExecutor(executor, pageable);
+    public Page<TaskListItem> getTasksByExecutorWithPagination(Long executorId, Pageable pageable) {
+        return taskRepository.findListItemsByExecutorId(executorId, pageable);
     }
     
     // Get open tasks by creator with pagination (OPEN + IN_PROGRESS)
     @Transactional(readOnly = true)
-    public Page<Task> getOpenTasksByCreatorWithPagination(Long creatorId, Pageable pageable) {
-        User creator = userRepository.findById(creatorId)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+    public Page<TaskListItem> getOpenTasksByCreatorWithPagination(Long creatorId, Pageable pageable) {
         List<TaskStatus> openStatuses = List.of(TaskStatus.OPEN, TaskStatus.IN_PROGRESS);
-        return taskRepository.findByCreatorAndStatusIn(creator, openStatuses, pageable);
+        return taskRepository.findListItemsByCreatorIdAndStatusIn(creatorId, openStatuses, pageable);
     }
     
     // Get closed tasks by creator with pagination (COMPLETED + CANCELLED)
     @Transactional(readOnly = true)
-    public Page<Task> getClosedTasksByCreatorWithPagination(Long creatorId, Pageable pageable) {
-        User creator = userRepository.findById(creatorId)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+    public Page<TaskListItem> getClosedTasksByCreatorWithPagination(Long creatorId, Pageable pageable) {
         List<TaskStatus> closedStatuses = List.of(TaskStatus.COMPLETED, TaskStatus.CANCELLED);
-        return taskRepository.findByCreatorAndStatusIn(creator, closedStatuses, pageable);
+        return taskRepository.findListItemsByCreatorIdAndStatusIn(creatorId, closedStatuses, pageable);
     }
     
     // Get tasks by creator and specific status with pagination
     @Transactional(readOnly = true)
-    public Page<Task> getTasksByCreatorAndStatusWithPagination(Long creatorId, TaskStatus status, Pageable pageable) {
-        User creator = userRepository.findById(creatorId)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
-        return taskRepository.findByCreatorAndStatusOrderByCreatedAtDesc(creator, status, pageable);
+    public Page<TaskListItem> getTasksByCreatorAndStatusWithPagination(Long creatorId, TaskStatus status, Pageable pageable) {
+        return taskRepository.findListItemsByCreatorIdAndStatus(creatorId, status, pageable);
     }
     
     // Update task
@@ -187,7 +299,10 @@ public class TaskService {
         task.setExecutor(executor); // Назначаем исполнителя
         task.setStatus(TaskStatus.IN_PROGRESS);
         
-        return taskRepository.save(task);
+        // Flush first: the task row lock is taken before the outbox insert, so events of one task get ids in commit order
+        Task saved = taskRepository.saveAndFlush(task);
+        taskOutbox.append(TaskEvent.of(TaskEvent.Type.TASK_ASSIGNED, saved));
+        return saved;
     }
     
     // Update task status
@@ -197,7 +312,9 @@ public class TaskService {
         
         task.setStatus(status);
         
-        return taskRepository.save(task);
+        Task saved = taskRepository.saveAndFlush(task);
+        taskOutbox.append(TaskEvent.of(TaskEvent.Type.TASK_STATUS_CHANGED, saved));
+        return saved;
     }
     
     // Delete task
@@ -206,6 +323,8 @@ public class TaskService {
                 .orElseThrow(() -> new RuntimeException("Задание не найдено"));
         
         taskRepository.delete(task);
+        taskRepository.flush();
+        taskOutbox.append(TaskEvent.of(TaskEvent.Type.TASK_DELETED, task));
     }
     
     // Count tasks by creator and status
@@ -224,9 +343,19 @@ public class TaskService {
         return taskRepository.countByExecutorAndStatus(executor, status);
     }
     
-    // Count open tasks
+    // Count open tasks (sum of the maintained counter shards, full count only if the counter rows are missing)
     @Transactional(readOnly = true)
     public long countOpenTasks() {
-        return taskRepository.countByStatusAndExecutorIsNull(TaskStatus.OPEN);
+        return taskRepository.findOpenUnassignedCounter()
+                .orElseGet(() -> taskRepository.countByStatusAndExecutorIsNull(TaskStatus.OPEN));
+    }
+    
+    // Task statistics for a user: one grouped query for both roles plus the open tasks counter
+    @Transactional(readOnly = true)
+    public TaskStatsDto getTaskStats(Long userId) {
+        List<Object[]> rows = taskRepository.countByUserIdGroupedByStatus(userId);
+        TaskStatusCounts created = TaskStatusCounts.from(rows, 1);
+        TaskStatusCounts asExecutor = TaskStatusCounts.from(rows, 2);
+        return new TaskStatsDto(created, asExecutor, countOpenTasks());
     }
 }
@@ -1,27 +1,40 @@
 package com.dobalito.service;
 
+import com.dobalito.config.MetricsConfig;
+import com.dobalito.dto.UserListItem;
 import com.dobalito.entity.User;
 import com.dobalito.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class UserService {
     
     @Autowired
     private UserRepository userRepository;
     
-    private static final String UPLOAD_DIR = "uploads/avatars/";
+    @Autowired
+    private PrincipalCache principalCache;
+    
+    @Autowired
+    private SearchService searchService;
+    
+    @Autowired
+    private AvatarStorage avatarStorage;
+    
+    @Autowired
+    private AvatarUploadReader avatarUploadReader;
     
     /**
      * Получить всех пользователей
@@ -30,6 +43,20 @@ public class UserService {
         return userRepository.findAll();
     }
     
+    /**
+     * Получить пользователей постранично
+     */
+    public Page<User> getAllUsers(Pageable pageable) {
+        return userRepository.findAllUsers(pageable);
+    }
+    
+    /**
+     * Все пользователи потоком для выгрузки (читать внутри транзакции вызывающего)
+     */
+    public Stream<UserListItem> streamAllUsers() {
+        return userRepository.streamAllUsers().map(UserListItem::from);
+    }
+    
     /**
      * Получить пользователя по ID
      */
@@ -70,7 +97,9 @@ public class UserService {
             if (name != null && !name.trim().isEmpty()) {
                 user.setName(name);
             }
-            return userRepository.save(user);
+            User savedUser = userRepository.save(user);
+            principalCache.invalidate(savedUser.getId());
+            return savedUser;
         } else {
             // Создаем нового пользователя
             User newUser = new User();
@@ -79,7 +108,9 @@ public class UserService {
             // Генерируем временный email на основе телефона
             newUser.setEmail("temp_" + phone + "@dobalito.local");
             newUser.setPassword("phone_auth"); // Временный пароль
-            return userRepository.save(newUser);
+            User savedUser = userRepository.save(newUser);
+            principalCache.invalidate(savedUser.getId());
+            return savedUser;
         }
     }
     
@@ -95,7 +126,9 @@ public class UserService {
             if (userDetails.getAvatar() != null) {
                 user.setAvatar(userDetails.getAvatar());
             }
-            return userRepository.save(user);
+            User savedUser = userRepository.save(user);
+            principalCache.invalidate(id);
+            return savedUser;
         }
         return null;
     }
@@ -106,55 +139,73 @@ public class UserService {
     public boolean deleteUser(Long id) {
         if (userRepository.existsById(id)) {
             userRepository.deleteById(id);
+            principalCache.invalidate(id);
             return true;
         }
         return false;
     }
     
     /**
-     * Поиск пользователей по имени или email
+     * Поиск пользователей по имени или email (нечеткий, лучшие совпадения первыми, не больше limit)
      */
-    public List<User> searchUsers(String searchTerm) {
-        return userRepository.findByNameOrEmailContaining(searchTerm);
+    public List<User> searchUsers(String searchTerm, Integer limit) {
+        return searchService.searchUsers(searchTerm, limit);
     }
     
     /**
-     * Загрузить аватарку пользователя
+     * Поиск пользователей постранично
+     */
+    public Page<User> searchUsers(String searchTerm, Pageable pageable) {
+        return userRepository.findByNameOrEmailContaining(searchTerm, pageable);
+    }
+    
+    /**
+     * Поиск пользователей потоком для выгрузки
+     */
+    public Stream<UserListItem> streamSearchUsers(String searchTerm) {
+        return userRepository.streamByNameOrEmailContaining(searchTerm).map(UserListItem::from);
+    }
+    
+    /**
+     * Загрузить аватарку пользователя.
+     * Исходный файл не сохраняется: на диск пишутся только JPEG варианты фиксированных размеров без метаданных.
+     * Одинаковые изображения хранятся один раз, старые файлы удаляет AvatarGarbageCollector.
      */
     public String uploadAvatar(Long userId, MultipartFile file) throws IOException {
-        Optional<User> optionalUser = userRepository.findById(userId);
-        if (!optionalUser.isPresent()) {
-            throw new RuntimeException("Пользователь не найден");
-        }
+        User user = findUserForAvatar(userId);
         
-        // Создаем директорию для загрузки, если она не существует
-        Path uploadPath = Paths.get(UPLOAD_DIR);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-        
-        // Генерируем уникальное имя файла
-        String originalFilename = file.getOriginalFilename();
-        String fileExtension = originalFilename != null && originalFilename.contains(".") 
-            ? originalFilename.substring(originalFilename.lastIndexOf("."))
-            : "";
-        String filename = UUID.randomUUID().toString() + fileExtension;
-        
-        // Сохраняем файл
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        // Имя аватарки - хеш содержимого; новое изображение проверяется и перекодируется до записи на диск
+        return saveAvatar(user, avatarStorage.store(file.getBytes()));
+    }
+    
+    /**
+     * Загрузить аватарку из тела запроса (Content-Type image/*), прочитанного потоково с подсчетом хеша
+     */
+    public String uploadAvatar(Long userId, InputStream body, long contentLength, String contentType) throws IOException {
+        // Пользователя проверяем до чтения тела
+        User user = findUserForAvatar(userId);
         
+        AvatarUpload upload = avatarUploadReader.read(body, contentLength, contentType);
+        return saveAvatar(user, avatarStorage.store(upload.getContent(), upload.getContentHash()));
+    }
+    
+    private User findUserForAvatar(Long userId) {
+        return userRepository.findById(userId)
+            .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+    }
+    
+    private String saveAvatar(User user, String avatarFilename) {
         // Обновляем аватарку пользователя
-        User user = optionalUser.get();
-        String avatarUrl = getAvatarUrl(filename);
+        String avatarUrl = getAvatarUrl(avatarFilename);
         user.setAvatar(avatarUrl);
         userRepository.save(user);
+        principalCache.invalidate(user.getId());
         
         return avatarUrl;
     }
     
     /**
-     * Удалить аватарку пользователя
+     * Удалить аватарку пользователя (файлы удалит сборщик мусора, если на них больше никто не ссылается)
      */
     public boolean deleteAvatar(Long userId) {
         Optional<User> optionalUser = userRepository.findById(userId);
@@ -162,42 +213,31 @@ public class UserService {
             User user = optionalUser.get();
             user.setAvatar(null);
             userRepository.save(user);
+            principalCache.invalidate(userId);
             return true;
         }
         return false;
     }
     
     /**
-     * Получить путь к файлу аватарки
+     * Получить пользователей по категории
      */
-    public Path getAvatarPath(String filename) {
-        if (filename == null || filename.trim().isEmpty()) {
-            throw new IllegalArgumentException("Filename cannot be null or empty");
-        }
-        
-        // Проверяем безопасность имени файла (защита от path traversal)
-        if (filename.contains("..") || filename.contains("/") || filename.contains("\\")) {
-            throw new IllegalArgumentException("Invalid filename: " + filename);
-        }
-        
-        // Создаем директорию если она не существует
-        Path uploadPath = Paths.get(UPLOAD_DIR);
-        try {
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to create upload directory", e);
-        }
-        
-        return uploadPath.resolve(filename).toAbsolutePath();
+    public List<User> getUsersByCategory(Long categoryId) {
+        return userRepository.findByCategoryId(categoryId);
     }
     
     /**
-     * Получить пользователей по категории
+     * Получить пользователей по категории постранично
      */
-    public List<User> getUsersByCategory(Long categoryId) {
-        return userRepository.findByCategoryId(categoryId);
+    public Page<User> getUsersByCategory(Long categoryId, Pageable pageable) {
+        return userRepository.findByCategoryId(categoryId, pageable);
+    }
+    
+    /**
+     * Пользователи категории потоком для выгрузки
+     */
+    public Stream<UserListItem> streamUsersByCategory(Long categoryId) {
+        return userRepository.streamByCategoryId(categoryId).map(UserListItem::from);
     }
     
     /**
@@ -214,6 +254,13 @@ public class UserService {
         return userRepository.findAllUsers();
     }
     
+    /**
+     * Получить исполнителей постранично
+     */
+    public Page<User> getAllExecutors(Pageable pageable) {
+        return userRepository.findAllUsers(pageable);
+    }
+    
     /**
      * Генерирует правильный URL для аватарки в зависимости от окружения
      */
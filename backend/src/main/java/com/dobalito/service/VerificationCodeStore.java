@@ -0,0 +1,40 @@
+package com.dobalito.service;
+
+import com.dobalito.entity.PhoneVerificationCode;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Хранилище кодов верификации телефона.
+ * На номер действует не больше одного кода: выдача нового кода гасит предыдущие.
+ * Реализация выбирается свойством verification.code-store (memory | jpa).
+ */
+public interface VerificationCodeStore {
+    
+    /**
+     * Сохранить новый код для номера, погасив предыдущие неиспользованные
+     */
+    PhoneVerificationCode issue(String phone, String code, LocalDateTime expiresAt);
+    
+    /**
+     * Действующий код номера: не использован, не истек и попытки не исчерпаны
+     */
+    Optional<PhoneVerificationCode> findActive(String phone, LocalDateTime now);
+    
+    /**
+     * Совпадает ли код с действующим кодом номера (без использования и без учета попытки)
+     */
+    boolean matches(String phone, String code, LocalDateTime now);
+    
+    /**
+     * Атомарно использовать код: true только для первого успешного вызова с верным кодом.
+     * Неверный код увеличивает счетчик попыток действующего кода.
+     */
+    boolean consume(String phone, String code, LocalDateTime now);
+    
+    /**
+     * Удалить истекшие коды, возвращает количество удаленных
+     */
+    int purgeExpired(LocalDateTime now);
+}
@@ -0,0 +1,44 @@
+-- Maintained counters for task statistics
+-- open_unassigned = number of tasks with status OPEN and no executor (totalOpenTasks in stats)
+-- Kept up to date by a trigger on tasks, so reading it is a single primary key lookup
+
+CREATE TABLE IF NOT EXISTS task_counters (
+    name VARCHAR(50) PRIMARY KEY,
+    counter_value BIGINT NOT NULL DEFAULT 0
+);
+
+-- Initial value from existing data
+INSERT INTO task_counters (name, counter_value)
+SELECT 'open_unassigned', COUNT(*) FROM tasks WHERE status = 'OPEN' AND executor_id IS NULL
+ON CONFLICT (name) DO UPDATE SET counter_value = EXCLUDED.counter_value;
+
+CREATE OR REPLACE FUNCTION update_task_counters()
+RETURNS TRIGGER AS $$
+DECLARE
+    delta BIGINT := 0;
+BEGIN
+    IF TG_OP = 'UPDATE' OR TG_OP = 'DELETE' THEN
+        IF OLD.status = 'OPEN' AND OLD.executor_id IS NULL THEN
+            delta := delta - 1;
+        END IF;
+    END IF;
+    
+    IF TG_OP = 'INSERT' OR TG_OP = 'UPDATE' THEN
+        IF NEW.status = 'OPEN' AND NEW.executor_id IS NULL THEN
+            delta := delta + 1;
+        END IF;
+    END IF;
+    
+    IF delta <> 0 THEN
+        UPDATE task_counters SET counter_value = counter_value + delta WHERE name = 'open_unassigned';
+    END IF;
+    
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_tasks_counters ON tasks;
+CREATE TRIGGER trg_tasks_counters
+    AFTER INSERT OR DELETE OR UPDATE OF status, executor_id ON tasks
+    FOR EACH ROW
+    EXECUTE FUNCTION update_task_counters();
@@ -0,0 +1,12 @@
+-- Full-text search over tasks (title + description)
+-- Generated tsvector column: PostgreSQL keeps it up to date on every INSERT/UPDATE
+-- Title has weight A, description weight B, so title matches rank higher
+-- 'russian' configuration stems Russian words and uses the English stemmer for Latin words
+
+ALTER TABLE tasks ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('russian', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('russian', coalesce(description, '')), 'B')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_tasks_search_vector ON tasks USING GIN (search_vector);
@@ -0,0 +1,14 @@
+-- Trigram indexes for fuzzy (typo tolerant) search of users and categories
+-- Indexes are built on lower(...) so they serve both the trigram operators (<%, word_similarity)
+-- and the existing LOWER(column) LIKE '%term%' queries
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Users: name and email (executor picker autocomplete)
+CREATE INDEX IF NOT EXISTS idx_users_name_trgm ON users USING GIN (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_email_trgm ON users USING GIN (lower(email) gin_trgm_ops);
+
+-- Categories: name, english name and description
+CREATE INDEX IF NOT EXISTS idx_categories_name_trgm ON categories USING GIN (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_categories_english_name_trgm ON categories USING GIN (lower(english_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_categories_description_trgm ON categories USING GIN (lower(description) gin_trgm_ops);
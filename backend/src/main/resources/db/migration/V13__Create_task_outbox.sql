@@ -0,0 +1,12 @@
+-- Transactional outbox for task lifecycle events
+-- TaskService appends a row in the same transaction as the task change; TaskOutboxRelay reads rows in id order,
+-- hands them to in-process listeners and deletes them, so the table only holds undelivered events.
+-- No foreign key to tasks: TASK_DELETED must outlive its task.
+
+CREATE TABLE IF NOT EXISTS task_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    task_id BIGINT NOT NULL,
+    event_type VARCHAR(32) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
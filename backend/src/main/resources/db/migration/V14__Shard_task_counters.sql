@@ -0,0 +1,38 @@
+-- Sharded task counters
+-- With one 'open_unassigned' row every task insert or status change waited on the same row lock.
+-- The counter is now split into 16 shard rows: the trigger updates the shard of the current backend
+-- (connection), so concurrent writers mostly touch different rows; the value is the sum of the shards.
+
+ALTER TABLE task_counters ADD COLUMN IF NOT EXISTS shard SMALLINT NOT NULL DEFAULT 0;
+ALTER TABLE task_counters DROP CONSTRAINT IF EXISTS task_counters_pkey;
+ALTER TABLE task_counters ADD PRIMARY KEY (name, shard);
+
+INSERT INTO task_counters (name, shard, counter_value)
+SELECT 'open_unassigned', s, 0 FROM generate_series(1, 15) AS s
+ON CONFLICT (name, shard) DO NOTHING;
+
+CREATE OR REPLACE FUNCTION update_task_counters()
+RETURNS TRIGGER AS $$
+DECLARE
+    delta BIGINT := 0;
+BEGIN
+    IF TG_OP = 'UPDATE' OR TG_OP = 'DELETE' THEN
+        IF OLD.status = 'OPEN' AND OLD.executor_id IS NULL THEN
+            delta := delta - 1;
+        END IF;
+    END IF;
+    
+    IF TG_OP = 'INSERT' OR TG_OP = 'UPDATE' THEN
+        IF NEW.status = 'OPEN' AND NEW.executor_id IS NULL THEN
+            delta := delta + 1;
+        END IF;
+    END IF;
+    
+    IF delta <> 0 THEN
+        UPDATE task_counters SET counter_value = counter_value + delta
+        WHERE name = 'open_unassigned' AND shard = pg_backend_pid() % 16;
+    END IF;
+    
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
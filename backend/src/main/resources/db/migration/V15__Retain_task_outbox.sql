@@ -0,0 +1,7 @@
+-- Task outbox as a shared log
+-- Rows are no longer deleted on delivery: every instance's relay reads them after its own cursor (id), so each
+-- replica's listeners (SSE subscribers) see every event. A retention job deletes rows older than
+-- tasks.outbox.retention by created_at.
+
+CREATE INDEX IF NOT EXISTS idx_task_outbox_created_at
+    ON task_outbox (created_at);
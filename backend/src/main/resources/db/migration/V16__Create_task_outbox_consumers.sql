@@ -0,0 +1,12 @@
+-- Durable outbox consumers
+-- A work-queue listener (TaskEventConsumer: notifications, cache invalidation, indexing) must see every event once
+-- across all replicas and restarts, so its cursor lives here instead of in memory. The relay that claims the row
+-- (SELECT ... FOR UPDATE SKIP LOCKED) hands the batch to the consumer and advances last_id in the same transaction;
+-- other instances skip the locked row. Retention does not delete events after the lowest last_id.
+-- Rows are created when a consumer first starts; delete the row of a removed consumer, or it holds back retention.
+
+CREATE TABLE IF NOT EXISTS task_outbox_consumer (
+    name VARCHAR(100) PRIMARY KEY,
+    last_id BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,7 @@
+-- Composite index for keyset pagination of the open tasks feed
+-- Matches: WHERE status = 'OPEN' AND executor_id IS NULL ORDER BY created_at DESC, id DESC
+-- Partial index keeps only open unassigned tasks, so it stays small as the table grows
+
+CREATE INDEX IF NOT EXISTS idx_tasks_open_feed
+    ON tasks (created_at DESC, id DESC)
+    WHERE status = 'OPEN' AND executor_id IS NULL;
@@ -0,0 +1,260 @@
+package com.dobalito.controller;
+
+import com.dobalito.config.SqlStatementCounter;
+import com.dobalito.entity.Category;
+import com.dobalito.entity.Task;
+import com.dobalito.entity.TaskStatus;
+import com.dobalito.entity.User;
+import com.dobalito.repository.CategoryRepository;
+import com.dobalito.repository.TaskRepository;
+import com.dobalito.repository.UserRepository;
+import com.dobalito.service.NdjsonExportService;
+import com.dobalito.service.TaskService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Бюджет SQL запросов списочных эндпоинтов заданий.
+ * Каждая страница должна собираться фиксированным числом запросов без N+1 по автору, исполнителю и категории:
+ * страница из 50 заданий с разными исполнителями и категориями укладывается в тот же бюджет, что и из двух.
+ * Отдельно проверяются выборки сущностей через entity graph (с JSON сериализацией, как в ответе) и NDJSON выгрузки.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TaskListStatementBudgetTest {
+    
+    // Выборка страницы + COUNT для totalElements (у неполной последней страницы COUNT не выполняется)
+    private static final int MAX_STATEMENTS = 2;
+    
+    // Задания с участниками через entity graph + EAGER категории пользователей одной пачкой (@BatchSize)
+    private static final int MAX_ENTITY_GRAPH_STATEMENTS = 2;
+    
+    // Выгрузка читается одним запросом-курсором
+    private static final int MAX_EXPORT_STATEMENTS = 1;
+    
+    private static final int TASKS_PER_STATUS = 15;
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
+    @Autowired
+    private TaskRepository taskRepository;
+    
+    @Autowired
+    private TaskService taskService;
+    
+    @Autowired
+    private NdjsonExportService ndjsonExportService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private User creator;
+    private User executor;
+    private Category category;
+    private Task assignedTask;
+    
+    @BeforeAll
+    void createTasks() {
+        creator = userRepository.save(new User("Автор", "budget.creator@example.com", null, "79990000001", (String) null));
+        List<User> executors = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            executors.add(userRepository.save(new User("Исполнитель " + i, "budget.executor" + i + "@example.com",
+                    null, "7999000001" + i, (String) null)));
+        }
+        executor = executors.get(0);
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            categories.add(categoryRepository.save(new Category("Бюджет " + i, "Budget " + i)));
+        }
+        category = categories.get(0);
+        
+        // Разные исполнители и категории: при ленивой загрузке связей каждая дала бы отдельный запрос
+        List<Task> tasks = new ArrayList<>();
+        int n = 0;
+        for (TaskStatus taskStatus : TaskStatus.values()) {
+            for (int i = 0; i < TASKS_PER_STATUS; i++, n++) {
+                LocalDateTime start = LocalDateTime.now().plusDays(1 + n);
+                Task task = new Task("Задание " + n, "Описание " + n, start, start.plusHours(2),
+                        creator, categories.get(n % categories.size()));
+                task.setStatus(taskStatus);
+                if (taskStatus != TaskStatus.OPEN) {
+                    task.setExecutor(executors.get(n % executors.size()));
+                }
+                tasks.add(task);
+            }
+        }
+        taskRepository.saveAll(tasks);
+        assignedTask = tasks.get(tasks.size() - 1);
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "/api/v1/tasks/open",
+        "/api/v1/tasks/open?mode=cursor",
+        "/api/v1/tasks/my",
+        "/api/v1/tasks/my/open",
+        "/api/v1/tasks/my/closed",
+        "/api/v1/tasks/my/status/COMPLETED",
+        "/api/v1/tasks/status/IN_PROGRESS",
+        "/api/v1/tasks/category/{categoryId}"
+    })
+    void creatorListsStayWithinBudget(String path) throws Exception {
+        assertWithinBudget(path, creator);
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {"/api/v1/tasks/assigned"})
+    void executorListsStayWithinBudget(String path) throws Exception {
+        assertWithinBudget(path, executor);
+    }
+    
+    @Test
+    void taskByIdStaysWithinBudget() throws Exception {
+        assertThat(countStatements("/api/v1/tasks/" + assignedTask.getId(), 1, creator))
+                .as("GET /tasks/{id}: SQL запросов (N+1?)")
+                .isLessThanOrEqualTo(MAX_ENTITY_GRAPH_STATEMENTS);
+    }
+    
+    Stream<Arguments> entityGraphQueries() {
+        return Stream.of(
+            Arguments.of("findByCreatorOrderByCreatedAtDesc",
+                (Supplier<List<Task>>) () -> taskRepository.findByCreatorOrderByCreatedAtDesc(creator)),
+            Arguments.of("findByStatusOrderByCreatedAtDesc",
+                (Supplier<List<Task>>) () -> taskRepository.findByStatusOrderByCreatedAtDesc(TaskStatus.COMPLETED)),
+            Arguments.of("findByCategoryIdOrderByCreatedAtDesc",
+                (Supplier<List<Task>>) () -> taskRepository.findByCategoryIdOrderByCreatedAtDesc(category.getId())),
+            Arguments.of("getAllTasks",
+                (Supplier<List<Task>>) () -> taskService.getAllTasks())
+        );
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("entityGraphQueries")
+    void entityGraphQueriesStayWithinBudget(String name, Supplier<List<Task>> query) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        int[] loaded = {0};
+        int mark = SqlStatementCounter.start();
+        int statements;
+        try {
+            // Сериализация обходит автора, исполнителя, категорию и категории пользователей - как ответ контроллера
+            transaction.executeWithoutResult(status -> {
+                List<Task> tasks = query.get();
+                loaded[0] = tasks.size();
+                serialize(tasks);
+            });
+        } finally {
+            statements = SqlStatementCounter.stop(mark);
+        }
+        assertThat(loaded[0]).as("%s: заданий", name).isGreaterThan(1);
+        assertThat(statements)
+                .as("%s: SQL запросов на %d заданий (N+1?)", name, loaded[0])
+                .isLessThanOrEqualTo(MAX_ENTITY_GRAPH_STATEMENTS);
+    }
+    
+    Stream<Arguments> exports() {
+        return Stream.of(
+            Arguments.of("/tasks/my?format=ndjson",
+                (Supplier<Stream<?>>) () -> taskService.streamTasksByCreator(creator.getId())),
+            Arguments.of("/tasks/status/{status}?format=ndjson",
+                (Supplier<Stream<?>>) () -> taskService.streamTasksByStatus(TaskStatus.IN_PROGRESS)),
+            Arguments.of("/tasks/category/{categoryId}?format=ndjson",
+                (Supplier<Stream<?>>) () -> taskService.streamTasksByCategory(category.getId()))
+        );
+    }
+    
+    /**
+     * Тело выгрузки пишется в текущем потоке: через MockMvc StreamingResponseBody выполнился бы в другом
+     * потоке и не попал бы в счетчик
+     */
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("exports")
+    void exportsStayWithinBudget(String name, Supplier<Stream<?>> query) throws Exception {
+        StreamingResponseBody body = ndjsonExportService.stream(query::get).getBody();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int mark = SqlStatementCounter.start();
+        int statements;
+        try {
+            body.writeTo(output);
+        } finally {
+            statements = SqlStatementCounter.stop(mark);
+        }
+        long lines = output.toString().lines().count();
+        assertThat(lines).as("%s: строк", name).isGreaterThan(1);
+        assertThat(statements)
+                .as("%s: SQL запросов на %d строк (N+1?)", name, lines)
+                .isLessThanOrEqualTo(MAX_EXPORT_STATEMENTS);
+    }
+    
+    private void serialize(Object value) {
+        try {
+            objectMapper.writeValueAsBytes(value);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private void assertWithinBudget(String path, User user) throws Exception {
+        String url = path.replace("{categoryId}", category.getId().toString());
+        for (int size : new int[] {2, 50}) {
+            assertThat(countStatements(url, size, user))
+                    .as("%s: SQL запросов на странице из %d (N+1?)", url, size)
+                    .isLessThanOrEqualTo(MAX_STATEMENTS);
+        }
+    }
+    
+    private int countStatements(String url, int size, User user) throws Exception {
+        UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(
+                user, null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        String separator = url.contains("?") ? "&" : "?";
+        int mark = SqlStatementCounter.start();
+        try {
+            mockMvc.perform(get(url + separator + "size=" + size).with(authentication(token)))
+                    .andExpect(status().isOk());
+        } catch (Exception | AssertionError e) {
+            SqlStatementCounter.stop(mark);
+            throw e;
+        }
+        return SqlStatementCounter.stop(mark);
+    }
+}
@@ -5,11 +5,14 @@ import { apiService } from '../services/apiService';
 interface SafeAvatarProps extends Omit<AvatarProps, 'src'> {
   src?: string;
   fallbackText?: string;
+  // Нужный размер в пикселях, сервер отдаст ближайший вариант не меньше
+  avatarSize?: number;
 }
 
 const SafeAvatar: React.FC<SafeAvatarProps> = ({ 
   src, 
   fallbackText = 'U', 
+  avatarSize = 128,
   ...props 
 }) => {
   const [imageError, setImageError] = useState(false);
@@ -28,7 +31,7 @@ const SafeAvatar: React.FC<SafeAvatarProps> = ({
   const shouldShowFallback = !src || imageError || !imageLoaded;
 
   const avatarSrc = src && !imageError ? 
-    (src.startsWith('http') ? src : `${apiService.getApiBaseUrl()}${src}`) : 
+    apiService.getAvatarUrl(src, avatarSize) : 
     undefined;
 
   return (
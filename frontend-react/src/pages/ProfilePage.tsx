@@ -184,6 +184,7 @@ const ProfilePage: React.FC = () => {
           <Box sx={{ position: 'relative', mr: 3 }}>
             <SafeAvatar
               src={user.avatar}
+              avatarSize={160}
               fallbackText={user.name.charAt(0).toUpperCase()}
               sx={{
                 width: 80,
@@ -82,6 +82,12 @@ export const apiService = {
     return API_BASE_URL;
   },
 
+  // URL аватарки с нужным размером варианта: ссылка бывает относительной или абсолютной (APP_BASE_URL)
+  getAvatarUrl(avatar: string, size: number) {
+    const url = avatar.startsWith('http') ? avatar : `${API_BASE_URL}${avatar}`;
+    return `${url}${url.includes('?') ? '&' : '?'}size=${size}`;
+  },
+
   // Health check
   async getHealth() {
     const response = await api.get('/health');
@@ -219,12 +225,10 @@ export const apiService = {
 
   // Avatar management
   async uploadAvatar(userId: number, file: File) {
-    const formData = new FormData();
-    formData.append('file', file);
-    
-    const response = await api.post(`/users/${userId}/avatar`, formData, {
+    // Файл отправляется телом запроса: сервер читает его потоково, без multipart разбора
+    const response = await api.post(`/users/${userId}/avatar`, file, {
       headers: {
-        'Content-Type': 'multipart/form-data',
+        'Content-Type': file.type || 'application/octet-stream',
       },
     });
     return response.data;